@@ -0,0 +1,49 @@
+package com.tmilar.labelsimplification.benchmarks;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import com.tmilar.labelsimplification.service.ReloadResult;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rules loading: extraction trees build plus matchers compilation, by rule set size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+  @Param({"100", "1000", "10000", "50000"})
+  public int rulesCount;
+
+  private List<Extractor> extractors;
+  private Map<String, List<String>> stopWords;
+
+  @Setup
+  public void setup() {
+    SyntheticRules rules = new SyntheticRules(rulesCount, 20, 8, 4, 42);
+    extractors = rules.getExtractors();
+    stopWords = rules.stopWords(100);
+  }
+
+  @Benchmark
+  public ReloadResult load() {
+    return new LabelSimplificationService().reload(extractors, stopWords);
+  }
+}
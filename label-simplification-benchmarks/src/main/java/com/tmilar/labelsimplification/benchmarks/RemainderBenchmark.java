@@ -0,0 +1,62 @@
+package com.tmilar.labelsimplification.benchmarks;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import com.tmilar.labelsimplification.service.RemainderMode;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Remainder computation on stop word heavy labels: long labels, half of their filler words being
+ * stop words, with a small rule set so the remainder dominates the simplification time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemainderBenchmark {
+
+  private static final int LABELS_COUNT = 1024;
+
+  @Param({"10", "100", "1000"})
+  public int stopWordsCount;
+
+  @Param({"MATCH_OFFSETS", "MATCHED_SUBSTRINGS"})
+  public RemainderMode remainderMode;
+
+  private LabelSimplificationService service;
+  private Label[] labels;
+  private int next;
+
+  @Setup
+  public void setup() {
+    SyntheticRules rules = new SyntheticRules(50, 5, 3, 3, 42);
+
+    service = new LabelSimplificationService();
+    service.setRemainderMode(remainderMode);
+    service.load(rules.getExtractors(), rules.stopWords(stopWordsCount));
+
+    List<Label> generated = rules.labels(LABELS_COUNT, 30);
+    labels = generated.toArray(new Label[0]);
+  }
+
+  @Benchmark
+  public SimplifiedLabel simplifyLabel() {
+    next = (next + 1) & (LABELS_COUNT - 1);
+    return service.simplifyLabel(labels[next]);
+  }
+}
@@ -0,0 +1,68 @@
+package com.tmilar.labelsimplification.benchmarks;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single label simplification, for short and long labels against shallow and deep rule trees.
+ *
+ * Shallow: ~2000 rules in 2 levels (many siblings). Deep: ~2000 rules in 6 levels (few siblings).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimplifyLabelBenchmark {
+
+  private static final int RULES_COUNT = 2000;
+  private static final int LABELS_COUNT = 1024;
+
+  @Param({"shallow", "deep"})
+  public String tree;
+
+  @Param({"short", "long"})
+  public String labelLength;
+
+  @Param({"false", "true"})
+  public boolean earlyExit;
+
+  private LabelSimplificationService service;
+  private Label[] labels;
+  private int next;
+
+  @Setup
+  public void setup() {
+    SyntheticRules rules = "deep".equals(tree)
+        ? new SyntheticRules(RULES_COUNT, 6, 4, 6, 42)
+        : new SyntheticRules(RULES_COUNT, 40, 50, 2, 42);
+
+    service = new LabelSimplificationService();
+    service.setEarlyExit(earlyExit);
+    service.load(rules.getExtractors(), rules.stopWords(20));
+
+    List<Label> generated = rules.labels(LABELS_COUNT, "long".equals(labelLength) ? 25 : 2);
+    labels = generated.toArray(new Label[0]);
+  }
+
+  @Benchmark
+  public SimplifiedLabel simplifyLabel() {
+    next = (next + 1) & (LABELS_COUNT - 1);
+    return service.simplifyLabel(labels[next]);
+  }
+}
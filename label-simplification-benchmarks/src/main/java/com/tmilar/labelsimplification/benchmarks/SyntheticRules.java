@@ -0,0 +1,166 @@
+package com.tmilar.labelsimplification.benchmarks;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.Label;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Generator of TCG-like rule sets and labels, for the benchmarks.
+ *
+ * Rules form a tree like "Juego &gt; Coleccion &gt; TipoProducto &gt; ...": every node matches its
+ * own fixed-length token (ie. "Qbcdf"), so a token never matches inside another one. One of every
+ * ten nodes uses an actual regex matcher, the rest are literal alternations.
+ * There are also two root level "Idioma" rules, one of them matching any label.
+ */
+public class SyntheticRules {
+
+  public static final String CATEGORY = "TCG";
+
+  private static final int REGEX_EVERY = 10;
+  private static final int TOKEN_LETTERS = 4;
+  private static final String[] FILLER_WORDS = {
+      "Nuevo", "Original", "Envio", "Gratis", "Oferta", "Unidad", "Stock", "Coleccionable",
+      "Importado", "Sellado", "Garantia", "Cartas", "Oficial", "Edicion", "Limitada"
+  };
+
+  private final Random random;
+  private final List<Extractor> extractors = new ArrayList<>();
+  // label tokens along the path to each generated node (root first), by node
+  private final List<String[]> nodeTokens = new ArrayList<>();
+  private final List<String> stopWords = new ArrayList<>();
+
+  /**
+   * @param rulesCount - amount of tree rules to generate.
+   * @param roots      - amount of first level ("Juego") rules.
+   * @param fanOut     - children of each non-leaf rule.
+   * @param maxDepth   - levels of the tree, 1 means only roots.
+   * @param seed       - random seed, so every fork benchmarks the same rule set.
+   */
+  public SyntheticRules(int rulesCount, int roots, int fanOut, int maxDepth, long seed) {
+    this.random = new Random(seed);
+
+    Queue<Integer> parents = new LinkedList<>();
+    for (int i = 0; i < roots && extractors.size() < rulesCount; i++) {
+      parents.add(addRule(null, 0));
+    }
+    while (!parents.isEmpty() && extractors.size() < rulesCount) {
+      int parent = parents.poll();
+      int depth = nodeTokens.get(parent).length;
+      if (depth >= maxDepth) {
+        continue;
+      }
+      for (int i = 0; i < fanOut && extractors.size() < rulesCount; i++) {
+        parents.add(addRule(parent, depth));
+      }
+    }
+
+    extractors.add(new Extractor("Idioma", "Español", "Spanish|Esp", null, 1, CATEGORY));
+    extractors.add(new Extractor("Idioma", "Ingles", "", null, 0, CATEGORY));
+  }
+
+  private int addRule(Integer parent, int depth) {
+    int index = nodeTokens.size();
+    String token = token(index);
+    String matcher = index % REGEX_EVERY == 0 ? token + "(-\\d+)?" : token + "|" + token + "x";
+    String parentPath = parent == null ? null : extractors.get(parent).getCurrentPath();
+
+    extractors.add(new Extractor(keyName(depth), token, matcher, parentPath, 0, CATEGORY));
+
+    String[] tokens = parent == null ? new String[1]
+        : Arrays.copyOf(nodeTokens.get(parent), depth + 1);
+    tokens[depth] = token;
+    nodeTokens.add(tokens);
+    return index;
+  }
+
+  private static String keyName(int depth) {
+    switch (depth) {
+      case 0:
+        return "Juego";
+      case 1:
+        return "Coleccion";
+      case 2:
+        return "TipoProducto";
+      default:
+        return "Nivel" + depth;
+    }
+  }
+
+  /**
+   * @return fixed-length token for the node: "Q" plus the node index in base 26 letters.
+   */
+  private static String token(int index) {
+    return "Q" + letters(index);
+  }
+
+  private static String letters(int index) {
+    char[] letters = new char[TOKEN_LETTERS];
+    for (int i = TOKEN_LETTERS - 1; i >= 0; i--) {
+      letters[i] = (char) ('a' + index % 26);
+      index /= 26;
+    }
+    return new String(letters);
+  }
+
+  public List<Extractor> getExtractors() {
+    return extractors;
+  }
+
+  /**
+   * Generate (literal) stop words, some of them present in the generated labels.
+   */
+  public Map<String, List<String>> stopWords(int count) {
+    stopWords.clear();
+    for (int i = 0; i < count; i++) {
+      stopWords.add(i < FILLER_WORDS.length ? FILLER_WORDS[i] : "Z" + letters(i));
+    }
+    Map<String, List<String>> categoryStopWords = new HashMap<>();
+    categoryStopWords.put(CATEGORY, new ArrayList<>(stopWords));
+    return categoryStopWords;
+  }
+
+  /**
+   * Generate labels matching the path to a random deepest node, plus filler words.
+   *
+   * @param count       - amount of labels.
+   * @param fillerWords - amount of non matching words added to each label.
+   */
+  public List<Label> labels(int count, int fillerWords) {
+    int deepest = nodeTokens.stream().mapToInt(tokens -> tokens.length).max().orElse(0);
+    List<String[]> leafs = new ArrayList<>();
+    for (String[] tokens : nodeTokens) {
+      if (tokens.length == deepest) {
+        leafs.add(tokens);
+      }
+    }
+
+    List<Label> labels = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      List<String> words = new ArrayList<>(Arrays.asList(leafs.get(random.nextInt(leafs.size()))));
+      for (int j = 0; j < fillerWords; j++) {
+        words.add(fillerWord());
+      }
+      if (i % 2 == 0) {
+        words.add("Spanish");
+      }
+      Collections.shuffle(words, random);
+      labels.add(new Label(String.join(" ", words), CATEGORY));
+    }
+    return labels;
+  }
+
+  private String fillerWord() {
+    if (!stopWords.isEmpty() && random.nextBoolean()) {
+      return stopWords.get(random.nextInt(stopWords.size()));
+    }
+    return FILLER_WORDS[random.nextInt(FILLER_WORDS.length)] + random.nextInt(100);
+  }
+}
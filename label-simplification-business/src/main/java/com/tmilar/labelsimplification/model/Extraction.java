@@ -0,0 +1,97 @@
+package com.tmilar.labelsimplification.model;
+
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Result of applying one {@link Extractor} to one label: the extracted value, plus the regex match
+ * spans and groups found in the label.
+ *
+ * It's the same (extractor, value) pair stored in the label extractions map, so it's produced once
+ * and then reused by both the priority selection and the remainder computation.
+ */
+public class Extraction extends Pair<Extractor, String> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int[] NO_SPANS = new int[0];
+
+  private final Extractor extractor;
+  private final String label;
+
+  // [start, end] offsets of each regex match, flattened.
+  private final int[] matchSpans;
+  // matched strings (full match, or groups), as returned by Extractor.findRegexMatches()
+  private final List<String> matches;
+
+  Extraction(Extractor extractor, String label, int[] matchSpans, List<String> matches) {
+    this.extractor = extractor;
+    this.label = label;
+    this.matchSpans = matchSpans;
+    // extractions are shared by cached results: callers can't change them.
+    this.matches = Collections.unmodifiableList(matches);
+  }
+
+  static Extraction anyMatch(Extractor extractor, String label) {
+    return new Extraction(extractor, label, NO_SPANS, Collections.singletonList(""));
+  }
+
+  public Extractor getExtractor() {
+    return extractor;
+  }
+
+  public String getValue() {
+    return extractor.getExtractValue();
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Integer getPriority() {
+    return extractor.getPriority();
+  }
+
+  /**
+   * @return flattened [start, end] offsets in the label of each regex match, as a copy.
+   */
+  public int[] getMatchSpans() {
+    return matchSpans.clone();
+  }
+
+  public int getMatchSpansCount() {
+    return matchSpans.length / 2;
+  }
+
+  public int getMatchStart(int span) {
+    return matchSpans[span * 2];
+  }
+
+  public int getMatchEnd(int span) {
+    return matchSpans[span * 2 + 1];
+  }
+
+  /**
+   * @return matched strings in the label (the full match, or the groups when there are any),
+   *     unmodifiable.
+   */
+  public List<String> getMatches() {
+    return matches;
+  }
+
+  @Override
+  public Extractor getLeft() {
+    return extractor;
+  }
+
+  @Override
+  public String getRight() {
+    return getValue();
+  }
+
+  @Override
+  public String setValue(String value) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -1,5 +1,7 @@
 package com.tmilar.labelsimplification.model;
 
+import com.tmilar.labelsimplification.util.BudgetedCharSequence;
+import com.tmilar.labelsimplification.util.CaseFolding;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -7,13 +9,9 @@ import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 public class Extractor {
 
-  private static final Logger logger = LogManager.getLogger(Extractor.class);
-
   // the key to be extracted. We extract only one instance of a key (ie. "Juego", "Coleccion").
   private final String keyName;
 
@@ -24,6 +22,10 @@ public class Extractor {
   // regex to use for check for a match.
   private final String matcher;
   private final Pattern compiledMatcher;
+  // case-sensitive form of the matcher, for case folded labels. Null if it can't be folded.
+  private final Pattern foldedMatcher;
+  // true if some matcher alternative is empty (ie. "Pkm|") -> it matches any label.
+  private final boolean anyMatch;
 
   // data ref to parent extractor
   private String parentPath = "";
@@ -41,6 +43,9 @@ public class Extractor {
 
     // pre-compile pattern matcher.
     this.compiledMatcher = Pattern.compile(matcher, Pattern.CASE_INSENSITIVE);
+    String foldedRegex = CaseFolding.foldPattern(matcher);
+    this.foldedMatcher = foldedRegex == null ? null : Pattern.compile(foldedRegex);
+    this.anyMatch = Arrays.asList(this.matcher.split("\\|", -1)).contains("");
   }
 
   public Extractor(String keyName, String extractValue, String matcher, String parentPath,
@@ -53,68 +58,93 @@ public class Extractor {
     this.currentPath = buildCurrentPath();
   }
 
-  public String extract(String label) {
-    if (matcher == null) {
-      logger.warn("Matcher for key '{}' was null - can't apply to label '{}'", keyName, label);
-    }
-
-    if (checkRegexMatch(label)) {
-      return extractValue;
-    }
-
-    return null;
-  }
-
-  private Boolean checkRegexMatch(String label) {
-    List<String> matches = findRegexMatches(label);
-
-    if (matches.size() == 0) {
-      return false;
-    }
-
-    if (matches.size() > 1) {
-      logger.warn("Found more than 1 matches for key '{}' (regex: '{}'): '{}' , in label '{}'.",
-          keyName, matcher, String.join("; ", matches), label);
-    }
-
-    return true;
-  }
-
-  public List<String> findRegexMatches(String label) {
-    boolean hasEmptyMatchers = Arrays.asList(matcher.split("\\|", -1)).contains("");
-    if (hasEmptyMatchers) {
+  /**
+   * Apply this extractor to the label, running its regex once.
+   *
+   * @return the extraction (value, match spans and groups), or null if the label doesn't match.
+   */
+  public Extraction extract(String label) {
+    return extract(label, null, 0);
+  }
+
+  /**
+   * Apply this extractor to the label, bounding the regex work.
+   *
+   * @param foldedLabel - the label case folded by {@link CaseFolding#fold(String)}, or null to
+   *                    fold it here if needed.
+   * @param steps       - max label characters read by the regex (backtracking included), or 0
+   *                    for no limit.
+   * @return the extraction (value, match spans and groups), or null if the label doesn't match.
+   * @throws BudgetedCharSequence.BudgetExceededException if the regex runs out of steps.
+   */
+  public Extraction extract(String label, String foldedLabel, long steps) {
+    if (anyMatch) {
       // 'any' matcher -> return immediately
-      logger.debug("Empty extraction of key '{}' (regex 'any match': '{}') for label '{}'.",
-          keyName, matcher, label);
-
-      return Collections.singletonList("");
+      return Extraction.anyMatch(this, label);
     }
 
-    Matcher labelMatcher = compiledMatcher.matcher(label);
+    // same matches (and offsets) either way; the folded one is case-sensitive, so it's cheaper.
+    Pattern pattern = compiledMatcher;
+    String text = label;
+    if (foldedMatcher != null) {
+      pattern = foldedMatcher;
+      text = foldedLabel != null ? foldedLabel : CaseFolding.fold(label);
+    }
+    Matcher labelMatcher = pattern.matcher(steps > 0 ? new BudgetedCharSequence(text, steps) : text);
     List<String> matches = new ArrayList<>();
+    int[] spans = new int[2];
+    int spansCount = 0;
 
     while (labelMatcher.find()) {
+      if (spansCount == spans.length) {
+        spans = Arrays.copyOf(spans, spans.length * 2);
+      }
+      spans[spansCount++] = labelMatcher.start();
+      spans[spansCount++] = labelMatcher.end();
+
+      // matched strings are taken from the label, keeping its original case.
       int groups = labelMatcher.groupCount();
       if(groups == 0) {
-        matches.add(labelMatcher.group());
+        matches.add(label.substring(labelMatcher.start(), labelMatcher.end()));
       }
       if(groups >= 1) {
-        List<String> groupMatches = new ArrayList<>();
         for (int i = 0; i < groups; i++) {
-          String groupMatch = labelMatcher.group(i);
-          if(groupMatch != null) {
-            groupMatches.add(groupMatch);
+          if(labelMatcher.start(i) >= 0) {
+            matches.add(label.substring(labelMatcher.start(i), labelMatcher.end(i)));
           }
         }
-        logger.debug("Match with 1 or more groups ({}): {} for label '{}', regex: '{}'",
-                groups, groupMatches, label, matcher);
-        matches.addAll(groupMatches);
       }
     }
-    if(matches.size() > 1) {
-      logger.info("More than 1 matches ({}) for label '{}', regex: '{}'", matches.size(), label, matcher);
+
+    if (spansCount == 0) {
+      return null;
+    }
+
+    // multiple matches are not logged here (hot path): explainLabel() lists them.
+    return new Extraction(this, label, Arrays.copyOf(spans, spansCount), matches);
+  }
+
+  /**
+   * Extraction for a label already matched at these spans (ie. by a literals automaton), without
+   * running the regex. Only for matchers without groups: the matches are the spans substrings.
+   *
+   * @param matchSpans - flattened [start, end] offsets of each match, as the regex would find them.
+   */
+  public Extraction matchedExtraction(String label, int[] matchSpans) {
+    List<String> matches = new ArrayList<>(matchSpans.length / 2);
+    for (int i = 0; i < matchSpans.length; i += 2) {
+      matches.add(label.substring(matchSpans[i], matchSpans[i + 1]));
     }
-    return matches;
+    return new Extraction(this, label, matchSpans, matches);
+  }
+
+  public List<String> findRegexMatches(String label) {
+    Extraction extraction = extract(label);
+    return extraction == null ? Collections.emptyList() : extraction.getMatches();
+  }
+
+  public boolean isAnyMatch() {
+    return anyMatch;
   }
 
   private String buildCurrentPath() {
@@ -122,7 +152,7 @@ public class Extractor {
       return "";
     }
     String currentPath = String.format("%s.%s[%d]", keyName, extractValue, priority);
-    String parent = parentPath;
+    String parent = parentPath == null ? "" : parentPath;
     if (parent.length() > 0) {
       parent += ".";
     }
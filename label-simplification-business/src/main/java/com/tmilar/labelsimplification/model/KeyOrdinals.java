@@ -0,0 +1,46 @@
+package com.tmilar.labelsimplification.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense integer ordinals (0..size-1) for the keys of one category, in key set order.
+ * Assigned once when the rules are loaded, so results can be stored in arrays indexed by ordinal.
+ */
+public class KeyOrdinals {
+
+  private final String[] keys;
+  private final Map<String, Integer> ordinals;
+
+  public KeyOrdinals(Collection<String> keys) {
+    this.keys = keys.toArray(new String[0]);
+    this.ordinals = new HashMap<>(this.keys.length * 2);
+    for (int i = 0; i < this.keys.length; i++) {
+      ordinals.put(this.keys[i], i);
+    }
+  }
+
+  public int size() {
+    return keys.length;
+  }
+
+  public String getKey(int ordinal) {
+    return keys[ordinal];
+  }
+
+  /**
+   * @return the key ordinal, or -1 if it's not a key of the category.
+   */
+  public int getOrdinal(String key) {
+    Integer ordinal = ordinals.get(key);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  public List<String> getKeys() {
+    return Collections.unmodifiableList(Arrays.asList(keys));
+  }
+}
@@ -0,0 +1,174 @@
+package com.tmilar.labelsimplification.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Compact, immutable extraction results of one label: every matched extraction (in tree visit
+ * order), tagged with its key ordinal, plus the label remainder.
+ *
+ * Values are looked up by key ordinal without building any map; the map views of
+ * {@link SimplifiedLabel} are only created when asked for.
+ */
+public class LabelExtractions {
+
+  // firstExtractions values for keys without a matched extraction.
+  public static final int NOT_MATCHED = -1;
+  public static final int NOT_VISITED = -2;
+
+  private final KeyOrdinals keyOrdinals;
+  private final Extraction[] extractions;
+  private final int[] extractionKeys;
+  private final int[] firstExtractions;
+  private final int[] winners;
+  private final int remainderOrdinal;
+  private final String remainder;
+
+  /**
+   * @param keyOrdinals      - ordinals of the label category keys.
+   * @param extractions      - matched extractions, in visit order.
+   * @param extractionKeys   - key ordinal of each extraction.
+   * @param firstExtractions - by key ordinal: index of the first matched extraction of the key, or
+   *                         {@link #NOT_MATCHED} / {@link #NOT_VISITED}.
+   * @param winners          - by key ordinal: index of the highest priority extraction of the key,
+   *                         or -1 if none.
+   * @param remainderOrdinal - ordinal of the remainder key, or -1 if it's not a category key.
+   * @param remainder        - clean label remainder, empty if there's none.
+   */
+  public LabelExtractions(KeyOrdinals keyOrdinals, Extraction[] extractions, int[] extractionKeys,
+      int[] firstExtractions, int[] winners, int remainderOrdinal, String remainder) {
+    this.keyOrdinals = keyOrdinals;
+    this.extractions = extractions;
+    this.extractionKeys = extractionKeys;
+    this.firstExtractions = firstExtractions;
+    this.winners = winners;
+    this.remainderOrdinal = remainderOrdinal;
+    this.remainder = remainder;
+  }
+
+  public KeyOrdinals getKeyOrdinals() {
+    return keyOrdinals;
+  }
+
+  public String getRemainder() {
+    return remainder;
+  }
+
+  /**
+   * @return value of the first extraction matched for the key (the remainder, for the remainder
+   *     key), or null if none.
+   */
+  public String getValue(int ordinal) {
+    int first = firstExtractions[ordinal];
+    if (first >= 0) {
+      return extractions[first].getValue();
+    }
+    return isRemainderKey(ordinal) ? remainder : null;
+  }
+
+  /**
+   * @return the value for the key name, or null if none (or it's not a key of the category).
+   */
+  public String getValue(String key) {
+    int ordinal = keyOrdinals.getOrdinal(key);
+    return ordinal < 0 ? null : getValue(ordinal);
+  }
+
+  /**
+   * @return the highest priority extraction of the key, or null if none.
+   */
+  public Extraction getWinner(int ordinal) {
+    return winners[ordinal] < 0 ? null : extractions[winners[ordinal]];
+  }
+
+  /**
+   * @return current path of every matched tree node, in visit order. Nodes skipped by an early
+   *     exit evaluation are missing.
+   */
+  public List<String> getMatchedPaths() {
+    List<String> paths = new ArrayList<>(extractions.length);
+    for (Extraction extraction : extractions) {
+      paths.add(extraction.getExtractor().getCurrentPath());
+    }
+    return paths;
+  }
+
+  /**
+   * @return the simplified label: the winner value of each key, in keys order, then the remainder.
+   */
+  public String joinWinnerValues() {
+    StringBuilder joined = new StringBuilder();
+    boolean first = true;
+    for (int winner : winners) {
+      if (winner < 0) {
+        continue;
+      }
+      if (!first) {
+        joined.append(' ');
+      }
+      joined.append(extractions[winner].getValue());
+      first = false;
+    }
+    if (!remainder.isEmpty()) {
+      if (!first) {
+        joined.append(' ');
+      }
+      joined.append(remainder);
+    }
+    return joined.toString();
+  }
+
+  private boolean isRemainderKey(int ordinal) {
+    return ordinal == remainderOrdinal && !remainder.isEmpty();
+  }
+
+  /**
+   * @return whether the key has a value (the key tree node was reached and matched).
+   */
+  private boolean isPresent(int ordinal) {
+    return firstExtractions[ordinal] != NOT_VISITED || isRemainderKey(ordinal);
+  }
+
+  /**
+   * @return key -&gt; first matched value. Keys whose tree nodes were evaluated but didn't match are
+   *     mapped to null; keys never reached are left out.
+   */
+  public Map<String, String> toValuesMap() {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (int ordinal = 0; ordinal < firstExtractions.length; ordinal++) {
+      if (isPresent(ordinal)) {
+        values.put(keyOrdinals.getKey(ordinal), getValue(ordinal));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * @return key -&gt; all the matched extractions of the key, in visit order.
+   */
+  public Map<String, List<Pair<Extractor, String>>> toExtractionsMap() {
+    List<List<Pair<Extractor, String>>> keyExtractions = new ArrayList<>(firstExtractions.length);
+    for (int ordinal = 0; ordinal < firstExtractions.length; ordinal++) {
+      keyExtractions.add(firstExtractions[ordinal] == NOT_VISITED ? null : new ArrayList<>());
+    }
+    for (int i = 0; i < extractions.length; i++) {
+      keyExtractions.get(extractionKeys[i]).add(extractions[i]);
+    }
+
+    Map<String, List<Pair<Extractor, String>>> extractionsMap = new LinkedHashMap<>();
+    for (int ordinal = 0; ordinal < firstExtractions.length; ordinal++) {
+      if (isRemainderKey(ordinal)) {
+        extractionsMap.put(keyOrdinals.getKey(ordinal),
+            Collections.singletonList(Pair.of(null, remainder)));
+      } else if (keyExtractions.get(ordinal) != null) {
+        extractionsMap.put(keyOrdinals.getKey(ordinal),
+            Collections.unmodifiableList(keyExtractions.get(ordinal)));
+      }
+    }
+    return extractionsMap;
+  }
+}
@@ -1,5 +1,6 @@
 package com.tmilar.labelsimplification.model;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -7,6 +8,9 @@ import org.apache.commons.lang3.tuple.Pair;
 
 public class SimplifiedLabel extends Label {
 
+  // compact extraction results, or null if the label was built with an extractions map.
+  private LabelExtractions extractions;
+  // map view of the extractions, created on first request (or set explicitly).
   private Map<String, List<Pair<Extractor, String>>> extractionsMap;
   /**
    * The label result after simplification step process.
@@ -30,7 +34,54 @@ public class SimplifiedLabel extends Label {
     this(new Label(label), simplifiedString, extractionsMap);
   }
 
+  /**
+   * @param simplifiedString - the simplified label, or null to join the extractions winner values
+   *                         on first request.
+   */
+  public SimplifiedLabel(String label, String simplifiedString, LabelExtractions extractions) {
+    super(label);
+    this.simplifiedLabel = simplifiedString;
+    this.extractions = extractions;
+  }
+
+  /**
+   * Copy constructor. The extractions map and its lists are copied: changing the copy doesn't
+   * affect the source. Extractions themselves are immutable.
+   */
+  public SimplifiedLabel(SimplifiedLabel simplifiedLabel) {
+    super(simplifiedLabel.getLabel(), simplifiedLabel.getCategory());
+    this.simplifiedLabel = simplifiedLabel.simplifiedLabel;
+    // compact extractions are immutable, they can be shared.
+    this.extractions = simplifiedLabel.extractions;
+    if (simplifiedLabel.extractionsMap != null) {
+      this.extractionsMap = new LinkedHashMap<>();
+      simplifiedLabel.extractionsMap.forEach((key, keyExtractions) ->
+          extractionsMap.put(key, keyExtractions == null ? null
+              : new ArrayList<>(keyExtractions)));
+    }
+  }
+
+  /**
+   * @return value extracted for the key (the first one matched), or null if none.
+   */
+  public String getExtractedValue(String key) {
+    if (extractions != null && extractionsMap == null) {
+      return extractions.getValue(key);
+    }
+    return getExtractedValuesMap().get(key);
+  }
+
+  /**
+   * @return compact extraction results, or null if this label was built from an extractions map.
+   */
+  public LabelExtractions getExtractions() {
+    return extractions;
+  }
+
   public Map<String, String> getExtractedValuesMap() {
+    if (extractions != null && extractionsMap == null) {
+      return extractions.toValuesMap();
+    }
     Map<String, String> extractedValues = new LinkedHashMap<>();
     if(extractionsMap == null) {
       return extractedValues;
@@ -47,6 +98,9 @@ public class SimplifiedLabel extends Label {
   }
 
   public String getSimplifiedLabel() {
+    if (simplifiedLabel == null && extractions != null) {
+      simplifiedLabel = extractions.joinWinnerValues();
+    }
     return simplifiedLabel;
   }
 
@@ -61,11 +115,18 @@ public class SimplifiedLabel extends Label {
   }
 
   public Map<String, List<Pair<Extractor, String>>> getExtractionsMap() {
+    if (extractionsMap == null && extractions != null) {
+      extractionsMap = extractions.toExtractionsMap();
+    }
     return extractionsMap;
   }
 
+  /**
+   * Replace the extractions. From then on the compact extractions are no longer used.
+   */
   public void setExtractionsMap(
       Map<String, List<Pair<Extractor, String>>> extractionsMap) {
+    this.extractions = null;
     this.extractionsMap = extractionsMap;
   }
 }
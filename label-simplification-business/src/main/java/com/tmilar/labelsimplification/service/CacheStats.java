@@ -0,0 +1,48 @@
+package com.tmilar.labelsimplification.service;
+
+/**
+ * Point-in-time counters of the simplified labels cache.
+ */
+public class CacheStats {
+
+  public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0);
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long size;
+
+  public CacheStats(long hitCount, long missCount, long evictionCount, long size) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.size = size;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public double getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CacheStats{hits=%d, misses=%d, evictions=%d, size=%d, hitRate=%.3f}",
+        hitCount, missCount, evictionCount, size, getHitRate());
+  }
+}
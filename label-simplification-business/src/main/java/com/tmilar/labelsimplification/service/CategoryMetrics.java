@@ -0,0 +1,58 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.util.LatencyHistogram;
+
+/**
+ * Simplification metrics of one category.
+ */
+public class CategoryMetrics {
+
+  private final String category;
+  private final LatencyHistogram.Snapshot labelLatency;
+  private final long evaluations;
+  private final long matches;
+
+  public CategoryMetrics(String category, LatencyHistogram.Snapshot labelLatency,
+      long evaluations, long matches) {
+    this.category = category;
+    this.labelLatency = labelLatency;
+    this.evaluations = evaluations;
+    this.matches = matches;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public long getLabels() {
+    return labelLatency.getCount();
+  }
+
+  /**
+   * @return per label simplification time.
+   */
+  public LatencyHistogram.Snapshot getLabelLatency() {
+    return labelLatency;
+  }
+
+  /**
+   * @return extractor evaluations, all of the category extractors.
+   */
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  public long getMatches() {
+    return matches;
+  }
+
+  public double getHitRatio() {
+    return evaluations == 0 ? 0 : (double) matches / evaluations;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CategoryMetrics{category=%s, evaluations=%d, hitRatio=%.3f, "
+        + "labelLatency={%s}}", category, evaluations, getHitRatio(), labelLatency);
+  }
+}
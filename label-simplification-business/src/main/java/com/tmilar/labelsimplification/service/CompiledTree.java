@@ -0,0 +1,253 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
+import com.tmilar.labelsimplification.util.CaseFolding;
+import com.tmilar.labelsimplification.util.TreeNode;
+import com.tmilar.labelsimplification.util.TrigramFingerprint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Immutable, array-encoded extraction tree of one category.
+ *
+ * Nodes are numbered breadth-first (the root is node 0), so the children of any node are
+ * contiguous: [firstChild, firstChild + childCount). Each node stores its extractor, key ordinal,
+ * subtree keys mask and the compiled matcher of its children in parallel arrays, and the tree is
+ * walked by an iterative loop over int stacks.
+ */
+class CompiledTree {
+
+  static final int ROOT = 0;
+
+  private final KeyOrdinals keyOrdinals;
+  private final Extractor[] extractors;
+  private final int[] firstChild;
+  private final int[] childCount;
+  private final int[] nodeKeys;
+  // keys of the extractors in each node subtree (including the node), as bit masks of key ordinals:
+  // maskWords longs per node.
+  private final int maskWords;
+  private final long[] subtreeKeys;
+  // by key ordinal: highest priority of the key extractors.
+  private final int[] keyMaxPriority;
+  // matcher of each node children, null for leaf nodes.
+  private final SiblingMatcher[] siblingMatchers;
+
+  // true if some extractor is evaluated by its regex.
+  private final boolean hasRegexes;
+  // true if some regex extractor can be prefiltered by a label fingerprint.
+  private final boolean hasPrefilters;
+
+  // non-leaf levels, ie. max walk stack depth.
+  private final int height;
+  // max children evaluations pending along any root-to-node path, ie. walk scratch size.
+  private final int scratchSize;
+
+  CompiledTree(TreeNode<Extractor> root, KeyOrdinals categoryKeyOrdinals) {
+    List<TreeNode<Extractor>> nodes = new ArrayList<>();
+    nodes.add(root);
+    List<Integer> firstChildList = new ArrayList<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      firstChildList.add(nodes.size());
+      nodes.addAll(nodes.get(i).children);
+    }
+
+    int size = nodes.size();
+    this.keyOrdinals = categoryKeyOrdinals;
+    this.extractors = new Extractor[size];
+    this.firstChild = new int[size];
+    this.childCount = new int[size];
+    this.nodeKeys = new int[size];
+    this.siblingMatchers = new SiblingMatcher[size];
+    this.maskWords = (categoryKeyOrdinals.size() + 63) / 64;
+    this.subtreeKeys = new long[size * maskWords];
+    this.keyMaxPriority = new int[categoryKeyOrdinals.size()];
+    Arrays.fill(keyMaxPriority, Integer.MIN_VALUE);
+
+    for (int i = 0; i < size; i++) {
+      TreeNode<Extractor> node = nodes.get(i);
+      extractors[i] = node.data;
+      firstChild[i] = firstChildList.get(i);
+      childCount[i] = node.children.size();
+      nodeKeys[i] = i == ROOT ? -1 : categoryKeyOrdinals.getOrdinal(node.data.getKeyName());
+      if (nodeKeys[i] >= 0) {
+        keyMaxPriority[nodeKeys[i]] = Math.max(keyMaxPriority[nodeKeys[i]],
+            node.data.getPriority());
+      }
+    }
+
+    // children are numbered after their parents: compute bottom-up.
+    int[] heights = new int[size];
+    int[] scratchSizes = new int[size];
+    for (int i = size - 1; i >= 0; i--) {
+      if (nodeKeys[i] >= 0) {
+        subtreeKeys[i * maskWords + nodeKeys[i] / 64] |= 1L << nodeKeys[i];
+      }
+      if (childCount[i] == 0) {
+        continue;
+      }
+      siblingMatchers[i] = new SiblingMatcher(extractors, firstChild[i], childCount[i]);
+      for (int child = firstChild[i]; child < firstChild[i] + childCount[i]; child++) {
+        heights[i] = Math.max(heights[i], heights[child] + 1);
+        scratchSizes[i] = Math.max(scratchSizes[i], scratchSizes[child]);
+        for (int word = 0; word < maskWords; word++) {
+          subtreeKeys[i * maskWords + word] |= subtreeKeys[child * maskWords + word];
+        }
+      }
+      scratchSizes[i] += childCount[i];
+    }
+    this.hasRegexes = Arrays.stream(siblingMatchers)
+        .anyMatch(matcher -> matcher != null && matcher.hasRegexes());
+    this.hasPrefilters = Arrays.stream(siblingMatchers)
+        .anyMatch(matcher -> matcher != null && matcher.hasPrefilters());
+    this.height = heights[ROOT];
+    this.scratchSize = scratchSizes[ROOT];
+  }
+
+  /**
+   * @return tree nodes, excluding the root.
+   */
+  int getNodesCount() {
+    return extractors.length - 1;
+  }
+
+  Extractor getExtractor(int node) {
+    return extractors[node];
+  }
+
+  int getFirstChild(int node) {
+    return firstChild[node];
+  }
+
+  int getChildCount(int node) {
+    return childCount[node];
+  }
+
+  int getMaskWords() {
+    return maskWords;
+  }
+
+  /**
+   * @return by key ordinal: highest priority of the key extractors, or Integer.MIN_VALUE for keys
+   *     without any.
+   */
+  int[] getKeyMaxPriority() {
+    return keyMaxPriority;
+  }
+
+  /**
+   * Prune the tree down to the nodes that can contribute to the wanted keys: the nodes of those
+   * keys, and their ancestors (which must match for them to be reached).
+   *
+   * @param wantedKeys - wanted keys, by key ordinal.
+   * @return the pruned tree, with the same key ordinals.
+   */
+  CompiledTree project(boolean[] wantedKeys) {
+    long[] wanted = new long[maskWords];
+    for (int ordinal = 0; ordinal < wantedKeys.length; ordinal++) {
+      if (wantedKeys[ordinal]) {
+        wanted[ordinal / 64] |= 1L << ordinal;
+      }
+    }
+
+    TreeNode<Extractor> root = new TreeNode<>(extractors[ROOT]);
+    Deque<Integer> nodes = new ArrayDeque<>();
+    Deque<TreeNode<Extractor>> copies = new ArrayDeque<>();
+    nodes.add(ROOT);
+    copies.add(root);
+    while (!nodes.isEmpty()) {
+      int node = nodes.poll();
+      TreeNode<Extractor> copy = copies.poll();
+      for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+        if (containsAny(child, wanted)) {
+          nodes.add(child);
+          copies.add(copy.addChild(extractors[child]));
+        }
+      }
+    }
+    return new CompiledTree(root, keyOrdinals);
+  }
+
+  private boolean containsAny(int node, long[] keys) {
+    for (int word = 0; word < maskWords; word++) {
+      if ((subtreeKeys[node * maskWords + word] & keys[word]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Visit tree nodes in-order, depth-first search, collecting the extractions.
+   * All the literal children of a node are matched at once, regex ones as they're visited; only
+   * the matched ones are traversed further.
+   *
+   * @param earlyExit - true to skip the nodes whose subtree keys are all decided by the
+   *                  collector, as they can't change the result.
+   */
+  void visitMatching(String label, ExtractionsCollector collector, SimplificationMetrics metrics,
+      RegexBudget regexBudget, boolean earlyExit, LabelExplanation explanation) {
+    if (childCount[ROOT] == 0) {
+      return;
+    }
+
+    // children extractions of the nodes in the stack, at their stack frame offset.
+    Extraction[] scratch = new Extraction[scratchSize];
+    int[] stackNode = new int[height];
+    int[] stackNext = new int[height];
+    int[] stackOffset = new int[height];
+    // the label is case folded once for all the regexes.
+    String foldedLabel = hasRegexes ? CaseFolding.fold(label) : null;
+    // computed on the first prefiltered regex.
+    TrigramFingerprint fingerprint = hasPrefilters ? new TrigramFingerprint(label) : null;
+
+    siblingMatchers[ROOT].match(label, metrics, scratch, 0);
+    int top = 0;
+    stackNode[0] = ROOT;
+
+    while (top >= 0) {
+      int node = stackNode[top];
+      int next = stackNext[top];
+      if (next == childCount[node]) {
+        // all the node children visited -> back to the parent.
+        top--;
+        if (top >= 0 && explanation != null) {
+          explanation.exitNode();
+        }
+        continue;
+      }
+      stackNext[top] = next + 1;
+
+      int child = firstChild[node] + next;
+      if (earlyExit && collector.allDecided(subtreeKeys, child * maskWords)) {
+        continue;
+      }
+      Extraction extraction = siblingMatchers[node].isRegex(next)
+          ? siblingMatchers[node].matchRegex(next, label, foldedLabel, fingerprint,
+              metrics, regexBudget)
+          : scratch[stackOffset[top] + next];
+      collector.visited(nodeKeys[child], extraction);
+      if (explanation != null) {
+        explanation.nodeEvaluated(extractors[child], extraction);
+      }
+
+      if (extraction != null && childCount[child] > 0) {
+        // matched -> traverse to children.
+        int childOffset = stackOffset[top] + childCount[node];
+        siblingMatchers[child].match(label, metrics, scratch, childOffset);
+        top++;
+        stackNode[top] = child;
+        stackNext[top] = 0;
+        stackOffset[top] = childOffset;
+        if (explanation != null) {
+          explanation.enterNode();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.tmilar.labelsimplification.service;
+
+import static com.tmilar.labelsimplification.service.LabelSimplificationService.REMAINDER_KEY_NAME;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.util.TreeNode;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Builds the per-category extraction trees from a list of extractor rules.
+ *
+ * Nodes are indexed by their current path while building, so finding a rule parent (or a
+ * previous rule with the same path) is a hash lookup, and the whole build is linear in the rules.
+ */
+class ExtractionTreeBuilder {
+
+  private static final Logger logger = LogManager.getLogger(ExtractionTreeBuilder.class);
+
+  private final Extractor rootExtractor = new Extractor(null, null, "");
+
+  private final Map<String, Set<String>> categoryKeysSet = new LinkedHashMap<>();
+  private final Map<String, TreeNode<Extractor>> catExtractionsTreeRoot = new LinkedHashMap<>();
+  // category -> (currentPath -> tree node)
+  private final Map<String, Map<String, TreeNode<Extractor>>> catNodesByPath = new HashMap<>();
+
+  ExtractionTreeBuilder addAll(List<Extractor> extractors) {
+    extractors.forEach(this::add);
+    return this;
+  }
+
+  ExtractionTreeBuilder add(Extractor extractor) {
+    String keyName = extractor.getKeyName();
+    String extractedValue = extractor.getExtractValue();
+    String parentPath = extractor.getParentPath();
+    String category = extractor.getCategory();
+
+    // initialize category extractions tree root
+    if (!categoryKeysSet.containsKey(category)) {
+      LinkedHashSet<String> keysSet = new LinkedHashSet<>();
+      keysSet.add(REMAINDER_KEY_NAME);
+      categoryKeysSet.put(category, keysSet);
+
+      TreeNode<Extractor> root = new TreeNode<>(rootExtractor);
+      catExtractionsTreeRoot.put(category, root);
+      Map<String, TreeNode<Extractor>> nodesByPath = new HashMap<>();
+      nodesByPath.put(rootExtractor.getCurrentPath(), root);
+      catNodesByPath.put(category, nodesByPath);
+    }
+
+    categoryKeysSet.get(category).add(keyName);
+    Map<String, TreeNode<Extractor>> nodesByPath = catNodesByPath.get(category);
+
+    // find parent extractor node, by parentPath.
+    // if parent present -> add/update child node by keyName
+    // if parent not present -> fail (must match some parent, at least the null root)
+    boolean isRootKey = parentPath == null
+        || Objects.equals(parentPath, "")
+        || Objects.equals(parentPath, "null");
+
+    String parentKey = isRootKey ? "" : parentPath;
+
+    TreeNode<Extractor> parentNode = nodesByPath.get(parentKey);
+
+    if (parentNode == null) {
+      logger.error(
+          "Required Parent node [path: '{}'] not found, can't add child node [key: '{}', extractValue: '{}']",
+          parentPath, keyName, extractedValue);
+      return this;
+    }
+
+    // parent IS present. Add as new child node to the parent.
+    TreeNode<Extractor> childNode = nodesByPath.get(extractor.getCurrentPath());
+
+    if (childNode == null) {
+      // add the current as child , first time.
+      nodesByPath.put(extractor.getCurrentPath(), parentNode.addChild(extractor));
+    } else {
+      // get existing node, append the matcher regex.
+      Extractor previous = childNode.data;
+
+      String combinedMatcher = previous.getMatcher() + "|" + extractor.getMatcher();
+
+      childNode.data = new Extractor(keyName, extractedValue, combinedMatcher, parentPath,
+          extractor.getPriority(), category);
+    }
+    return this;
+  }
+
+  Map<String, Set<String>> getCategoryKeysSet() {
+    return categoryKeysSet;
+  }
+
+  Map<String, TreeNode<Extractor>> getCatExtractionsTreeRoot() {
+    return catExtractionsTreeRoot;
+  }
+}
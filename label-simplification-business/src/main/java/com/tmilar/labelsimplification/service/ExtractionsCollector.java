@@ -0,0 +1,132 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
+import com.tmilar.labelsimplification.model.LabelExtractions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the extractions matched while visiting the extraction tree for one label, in flat
+ * arrays indexed by key ordinal instead of a map of lists.
+ */
+class ExtractionsCollector {
+
+  private final KeyOrdinals keyOrdinals;
+  private Extraction[] extractions = new Extraction[8];
+  private int[] extractionKeys = new int[8];
+  private int count;
+  // by key ordinal: index of the first extraction, or NOT_MATCHED / NOT_VISITED.
+  private final int[] firstExtractions;
+  // keys to collect, by key ordinal. Null to collect all of them.
+  private final boolean[] wantedKeys;
+  // by key ordinal: highest priority of the key extractors.
+  private final int[] keyMaxPriority;
+  // bit mask (by key ordinal) of the keys whose winner can't change anymore: matched at their
+  // highest priority, or not wanted.
+  private final long[] decidedKeys;
+
+  ExtractionsCollector(KeyOrdinals keyOrdinals, boolean[] wantedKeys, CompiledTree tree) {
+    this.keyOrdinals = keyOrdinals;
+    this.wantedKeys = wantedKeys;
+    this.firstExtractions = new int[keyOrdinals.size()];
+    Arrays.fill(firstExtractions, LabelExtractions.NOT_VISITED);
+    this.keyMaxPriority = tree.getKeyMaxPriority();
+    this.decidedKeys = new long[tree.getMaskWords()];
+    if (wantedKeys != null) {
+      for (int ordinal = 0; ordinal < wantedKeys.length; ordinal++) {
+        if (!wantedKeys[ordinal]) {
+          decidedKeys[ordinal / 64] |= 1L << ordinal;
+        }
+      }
+    }
+  }
+
+  /**
+   * A tree node of the key was evaluated.
+   *
+   * @param extraction - the node extraction, or null if it didn't match.
+   */
+  void visited(int keyOrdinal, Extraction extraction) {
+    if (wantedKeys != null && !wantedKeys[keyOrdinal]) {
+      return;
+    }
+    if (extraction == null) {
+      if (firstExtractions[keyOrdinal] == LabelExtractions.NOT_VISITED) {
+        firstExtractions[keyOrdinal] = LabelExtractions.NOT_MATCHED;
+      }
+      return;
+    }
+
+    if (count == extractions.length) {
+      extractions = Arrays.copyOf(extractions, count * 2);
+      extractionKeys = Arrays.copyOf(extractionKeys, count * 2);
+    }
+    if (firstExtractions[keyOrdinal] < 0) {
+      firstExtractions[keyOrdinal] = count;
+    }
+    if (extraction.getPriority() >= keyMaxPriority[keyOrdinal]) {
+      // ties go to the first one visited: no later extraction can win.
+      decidedKeys[keyOrdinal / 64] |= 1L << keyOrdinal;
+    }
+    extractions[count] = extraction;
+    extractionKeys[count] = keyOrdinal;
+    count++;
+  }
+
+  /**
+   * @param keys   - bit masks of key ordinals.
+   * @param offset - start of the mask to check in keys.
+   * @return true if every key of the mask is decided, so no extraction of those keys can change
+   *     the result.
+   */
+  boolean allDecided(long[] keys, int offset) {
+    for (int word = 0; word < decidedKeys.length; word++) {
+      if ((keys[offset + word] & ~decidedKeys[word]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return by key ordinal: index of the highest priority extraction of the key (the first one
+   *     visited on ties), or -1 if none matched.
+   */
+  int[] winners() {
+    int[] winners = new int[firstExtractions.length];
+    Arrays.fill(winners, -1);
+    for (int i = 0; i < count; i++) {
+      int winner = winners[extractionKeys[i]];
+      if (winner < 0
+          || extractions[i].getPriority().compareTo(extractions[winner].getPriority()) > 0) {
+        winners[extractionKeys[i]] = i;
+      }
+    }
+    return winners;
+  }
+
+  Extraction getExtraction(int index) {
+    return extractions[index];
+  }
+
+  /**
+   * @return the extractions of the key, in visit order.
+   */
+  List<Extraction> keyExtractions(int keyOrdinal) {
+    List<Extraction> keyExtractions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (extractionKeys[i] == keyOrdinal) {
+        keyExtractions.add(extractions[i]);
+      }
+    }
+    return keyExtractions;
+  }
+
+  LabelExtractions toLabelExtractions(int[] winners, int remainderOrdinal, String remainder) {
+    return new LabelExtractions(keyOrdinals, Arrays.copyOf(extractions, count),
+        Arrays.copyOf(extractionKeys, count), firstExtractions, winners, remainderOrdinal,
+        remainder);
+  }
+}
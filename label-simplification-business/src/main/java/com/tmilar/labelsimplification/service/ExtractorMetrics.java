@@ -0,0 +1,61 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.util.LatencyHistogram;
+
+/**
+ * Evaluation metrics of one extractor, identified by its category and tree path.
+ */
+public class ExtractorMetrics {
+
+  private final String category;
+  private final String path;
+  private final long matches;
+  private final LatencyHistogram.Snapshot latency;
+
+  public ExtractorMetrics(String category, String path, long matches,
+      LatencyHistogram.Snapshot latency) {
+    this.category = category;
+    this.path = path;
+    this.matches = matches;
+    this.latency = latency;
+  }
+
+  ExtractorMetrics merge(ExtractorMetrics other) {
+    return new ExtractorMetrics(category, path, matches + other.matches,
+        latency.merge(other.latency));
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public long getEvaluations() {
+    return latency.getCount();
+  }
+
+  public long getMatches() {
+    return matches;
+  }
+
+  public double getHitRatio() {
+    long evaluations = getEvaluations();
+    return evaluations == 0 ? 0 : (double) matches / evaluations;
+  }
+
+  /**
+   * @return per evaluation time.
+   */
+  public LatencyHistogram.Snapshot getLatency() {
+    return latency;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ExtractorMetrics{category=%s, path=%s, evaluations=%d, hitRatio=%.3f, "
+        + "latency={%s}}", category, path, getEvaluations(), getHitRatio(), latency);
+  }
+}
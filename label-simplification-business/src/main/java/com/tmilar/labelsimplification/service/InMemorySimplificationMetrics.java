@@ -0,0 +1,98 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.util.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics kept in memory: counts and latency histograms per category and per extractor, read with
+ * {@link #snapshot()}.
+ *
+ * Extractors are tracked by instance and reported by (category, path), so the measurements of the
+ * same rule across reloads add up.
+ */
+public class InMemorySimplificationMetrics implements SimplificationMetrics {
+
+  private final ConcurrentMap<String, LatencyHistogram> categoryLatencies =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<Extractor, ExtractorRecorder> extractors = new ConcurrentHashMap<>();
+
+  private static class ExtractorRecorder {
+
+    private final LongAdder matches = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+  }
+
+  @Override
+  public void recordExtractor(Extractor extractor, boolean matched, long nanos) {
+    ExtractorRecorder recorder = extractors.get(extractor);
+    if (recorder == null) {
+      recorder = extractors.computeIfAbsent(extractor, e -> new ExtractorRecorder());
+    }
+    if (matched) {
+      recorder.matches.increment();
+    }
+    recorder.latency.record(nanos);
+  }
+
+  @Override
+  public void recordLabel(String category, long nanos) {
+    String key = category == null ? "" : category;
+    LatencyHistogram latency = categoryLatencies.get(key);
+    if (latency == null) {
+      latency = categoryLatencies.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+    latency.record(nanos);
+  }
+
+  /**
+   * Forget every measurement so far.
+   */
+  public void reset() {
+    categoryLatencies.clear();
+    extractors.clear();
+  }
+
+  /**
+   * @return point-in-time copy of the metrics.
+   */
+  public MetricsSnapshot snapshot() {
+    Map<List<String>, ExtractorMetrics> extractorMetrics = new HashMap<>();
+    extractors.forEach((extractor, recorder) -> {
+      ExtractorMetrics metrics = new ExtractorMetrics(extractor.getCategory(),
+          extractor.getCurrentPath(), recorder.matches.sum(), recorder.latency.snapshot());
+      extractorMetrics.merge(
+          Arrays.asList(extractor.getCategory(), extractor.getCurrentPath()), metrics,
+          ExtractorMetrics::merge);
+    });
+
+    List<ExtractorMetrics> extractorsList = new ArrayList<>(extractorMetrics.values());
+    extractorsList.sort(Comparator.comparingLong(
+        (ExtractorMetrics metrics) -> metrics.getLatency().getTotalNanos()).reversed());
+
+    List<CategoryMetrics> categoriesList = new ArrayList<>();
+    categoryLatencies.forEach((category, latency) -> {
+      long evaluations = 0;
+      long matches = 0;
+      for (ExtractorMetrics metrics : extractorsList) {
+        if (Objects.equals(metrics.getCategory(), category)) {
+          evaluations += metrics.getEvaluations();
+          matches += metrics.getMatches();
+        }
+      }
+      categoriesList.add(new CategoryMetrics(category, latency.snapshot(), evaluations, matches));
+    });
+    categoriesList.sort(Comparator.comparing(CategoryMetrics::getCategory));
+
+    return new MetricsSnapshot(categoriesList, extractorsList);
+  }
+}
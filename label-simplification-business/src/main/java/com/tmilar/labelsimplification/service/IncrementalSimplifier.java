@@ -0,0 +1,219 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.RulesFingerprint.CategoryFingerprint;
+import com.tmilar.labelsimplification.service.SimplificationState.StoredResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Re-simplifies a labels corpus after a rules change, reusing the previous results of the labels
+ * the change can't affect (see {@link RulesDiff#affects(String, java.util.Collection)}), and
+ * recording the new state for the next run. Results are the same as simplifying every label again.
+ * Reused results are rebuilt from the current rules: their extractions map holds the current
+ * extractors of the stored matched paths.
+ *
+ * Matched paths must be complete, so the service must not use early exit.
+ */
+public class IncrementalSimplifier {
+
+  private final LabelSimplificationService service;
+  private final RuleSnapshot rules;
+  private final SimplificationState previous;
+  private final RulesFingerprint fingerprint;
+  private final RulesDiff diff;
+  private final SimplificationState next;
+  // by category: tree node of each path, for the reused results extractors.
+  private final Map<String, Map<String, Integer>> categoryNodes = new ConcurrentHashMap<>();
+
+  private final LongAdder reusedCount = new LongAdder();
+  private final LongAdder simplifiedCount = new LongAdder();
+
+  /**
+   * @param previous - state of the previous run, or null to simplify every label.
+   */
+  public IncrementalSimplifier(LabelSimplificationService service,
+      SimplificationState previous) {
+    if (service.isEarlyExit()) {
+      throw new IllegalArgumentException(
+          "Incremental simplification needs every matched path, disable the early exit");
+    }
+    this.service = service;
+    this.rules = service.getRuleSnapshot();
+    this.previous = previous;
+    this.fingerprint = RulesFingerprint.of(rules, service.getRemainderMode(),
+        service.getRegexBudget());
+    this.diff = previous == null ? null : previous.getFingerprint().diff(fingerprint);
+    this.next = new SimplificationState(fingerprint);
+  }
+
+  /**
+   * @return the simplified labels, in the same order as the input labels.
+   */
+  public List<SimplifiedLabel> simplifyAll(List<? extends Label> labels) {
+    SimplifiedLabel[] results = new SimplifiedLabel[labels.size()];
+    List<Label> toSimplify = new ArrayList<>();
+    List<Integer> toSimplifyIndexes = new ArrayList<>();
+
+    for (int i = 0; i < labels.size(); i++) {
+      Label label = labels.get(i);
+      SimplifiedLabel reused = reuse(label);
+      if (reused != null) {
+        results[i] = reused;
+      } else {
+        toSimplify.add(label);
+        toSimplifyIndexes.add(i);
+      }
+    }
+
+    List<SimplifiedLabel> simplified = service.simplifyAll(toSimplify);
+    for (int i = 0; i < simplified.size(); i++) {
+      Label label = toSimplify.get(i);
+      SimplifiedLabel result = simplified.get(i);
+      results[toSimplifyIndexes.get(i)] = result;
+      record(label, result);
+    }
+
+    reusedCount.add(labels.size() - toSimplify.size());
+    simplifiedCount.add(toSimplify.size());
+    List<SimplifiedLabel> resultsList = new ArrayList<>(results.length);
+    Collections.addAll(resultsList, results);
+    return resultsList;
+  }
+
+  /**
+   * @return the previous result of the label if the rules change can't affect it (recorded into
+   *     the next state), otherwise null.
+   */
+  private SimplifiedLabel reuse(Label label) {
+    String category = label.getCategory();
+    CategoryFingerprint categoryFingerprint = fingerprint.getCategories().get(category);
+    if (previous == null || categoryFingerprint == null) {
+      return null;
+    }
+    StoredResult stored = previous.get(category, label.getLabel());
+    if (stored == null) {
+      return null;
+    }
+    List<String> matchedPaths = previous.getMatchedPaths(category, stored);
+    if (diff.affects(category, matchedPaths)) {
+      return null;
+    }
+    Map<String, List<Pair<Extractor, String>>> extractions = extractionsMap(category,
+        matchedPaths, stored);
+    if (extractions == null) {
+      return null;
+    }
+
+    next.put(category, label.getLabel(), stored.simplifiedLabel, stored.values, matchedPaths);
+    return new SimplifiedLabel(label, stored.simplifiedLabel, extractions);
+  }
+
+  /**
+   * Same map as a fresh result one ({@link com.tmilar.labelsimplification.model.LabelExtractions
+   * #toExtractionsMap()}): by key, the current extractors of the matched paths in visit order, an
+   * empty list for the keys evaluated without a match, and the remainder.
+   *
+   * @return the extractions map, or null if some matched path is not in the current rules.
+   */
+  private Map<String, List<Pair<Extractor, String>>> extractionsMap(String category,
+      List<String> matchedPaths, StoredResult stored) {
+    CompiledTree tree = rules.getTree(category);
+    Map<String, Integer> nodes = categoryNodes.computeIfAbsent(category, c -> nodesByPath(tree));
+
+    // evaluated nodes: the root children and the matched nodes children.
+    Set<String> evaluatedKeys = new HashSet<>();
+    addChildrenKeys(tree, CompiledTree.ROOT, evaluatedKeys);
+    Map<String, List<Pair<Extractor, String>>> keyExtractions = new HashMap<>();
+    for (String path : matchedPaths) {
+      Integer node = nodes.get(path);
+      if (node == null) {
+        return null;
+      }
+      Extractor extractor = tree.getExtractor(node);
+      keyExtractions.computeIfAbsent(extractor.getKeyName(), key -> new ArrayList<>())
+          .add(Pair.of(extractor, extractor.getExtractValue()));
+      addChildrenKeys(tree, node, evaluatedKeys);
+    }
+
+    // same keys as the stored values: the category keys didn't change.
+    KeyOrdinals keyOrdinals = rules.getKeyOrdinals(category);
+    List<String> keys = fingerprint.getCategories().get(category).getKeys();
+    Map<String, List<Pair<Extractor, String>>> extractionsMap = new LinkedHashMap<>();
+    for (String key : keyOrdinals.getKeys()) {
+      String value = stored.values[keys.indexOf(key)];
+      if (LabelSimplificationService.REMAINDER_KEY_NAME.equals(key) && value != null
+          && !value.isEmpty()) {
+        extractionsMap.put(key, Collections.singletonList(Pair.of(null, value)));
+      } else if (keyExtractions.containsKey(key)) {
+        extractionsMap.put(key, Collections.unmodifiableList(keyExtractions.get(key)));
+      } else if (evaluatedKeys.contains(key)) {
+        extractionsMap.put(key, Collections.emptyList());
+      }
+    }
+    return extractionsMap;
+  }
+
+  private static Map<String, Integer> nodesByPath(CompiledTree tree) {
+    Map<String, Integer> nodes = new HashMap<>();
+    for (int node = CompiledTree.ROOT + 1; node <= tree.getNodesCount(); node++) {
+      nodes.put(tree.getExtractor(node).getCurrentPath(), node);
+    }
+    return nodes;
+  }
+
+  private static void addChildrenKeys(CompiledTree tree, int node, Set<String> keys) {
+    int firstChild = tree.getFirstChild(node);
+    for (int child = firstChild; child < firstChild + tree.getChildCount(node); child++) {
+      keys.add(tree.getExtractor(child).getKeyName());
+    }
+  }
+
+  private void record(Label label, SimplifiedLabel result) {
+    CategoryFingerprint categoryFingerprint = fingerprint.getCategories().get(label.getCategory());
+    if (categoryFingerprint == null || result.getExtractions() == null) {
+      return; // category not mapped, nothing extracted.
+    }
+    List<String> keys = categoryFingerprint.getKeys();
+    String[] values = new String[keys.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = result.getExtractedValue(keys.get(i));
+    }
+    next.put(label.getCategory(), label.getLabel(), result.getSimplifiedLabel(), values,
+        result.getExtractions().getMatchedPaths());
+  }
+
+  /**
+   * @return the rules changes since the previous state, or null without a previous state.
+   */
+  public RulesDiff getDiff() {
+    return diff;
+  }
+
+  /**
+   * @return the state of the labels simplified so far, with the current rules fingerprint.
+   */
+  public SimplificationState getState() {
+    return next;
+  }
+
+  public long getReusedCount() {
+    return reusedCount.sum();
+  }
+
+  public long getSimplifiedCount() {
+    return simplifiedCount.sum();
+  }
+}
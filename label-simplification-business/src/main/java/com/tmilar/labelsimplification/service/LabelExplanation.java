@@ -0,0 +1,215 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Trace of one label simplification, as returned by
+ * {@link LabelSimplificationService#explainLabel(com.tmilar.labelsimplification.model.Label)}:
+ * every tree node evaluated (in visit order), the priority decision of each key, the remainder,
+ * and the resulting simplified label.
+ */
+public class LabelExplanation {
+
+  private final String label;
+  private final String category;
+  private boolean categoryMapped = true;
+  private final List<NodeEvaluation> nodeEvaluations = new ArrayList<>();
+  private final List<KeyDecision> keyDecisions = new ArrayList<>();
+  private String remainder;
+  private SimplifiedLabel simplifiedLabel;
+
+  // depth of the nodes currently being evaluated, 0 for the category root children.
+  private int depth;
+
+  /**
+   * One extractor evaluated against the label.
+   */
+  public static class NodeEvaluation {
+
+    private final Extractor extractor;
+    private final int depth;
+    private final boolean matched;
+    private final List<String> matches;
+
+    NodeEvaluation(Extractor extractor, int depth, Extraction extraction) {
+      this.extractor = extractor;
+      this.depth = depth;
+      this.matched = extraction != null;
+      this.matches = extraction == null ? Collections.emptyList() : extraction.getMatches();
+    }
+
+    public Extractor getExtractor() {
+      return extractor;
+    }
+
+    public String getPath() {
+      return extractor.getCurrentPath();
+    }
+
+    /**
+     * @return tree depth of the node, 0 for the category root children.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    public boolean isMatched() {
+      return matched;
+    }
+
+    /**
+     * @return matched strings in the label (the full match, or the groups when there are any).
+     */
+    public List<String> getMatches() {
+      return matches;
+    }
+  }
+
+  /**
+   * The extractions matched for one key, and the one picked by priority.
+   */
+  public static class KeyDecision {
+
+    private final String key;
+    private final List<Extraction> candidates;
+    private final Extraction winner;
+
+    KeyDecision(String key, List<Extraction> candidates, Extraction winner) {
+      this.key = key;
+      this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+      this.winner = winner;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * @return every matched extraction of the key, in visit order.
+     */
+    public List<Extraction> getCandidates() {
+      return candidates;
+    }
+
+    /**
+     * @return the highest priority extraction (the first one visited, on ties), or null if no
+     *     extraction matched.
+     */
+    public Extraction getWinner() {
+      return winner;
+    }
+  }
+
+  LabelExplanation(String label, String category) {
+    this.label = label;
+    this.category = category;
+  }
+
+  void categoryNotMapped() {
+    this.categoryMapped = false;
+  }
+
+  void nodeEvaluated(Extractor extractor, Extraction extraction) {
+    nodeEvaluations.add(new NodeEvaluation(extractor, depth, extraction));
+  }
+
+  void enterNode() {
+    depth++;
+  }
+
+  void exitNode() {
+    depth--;
+  }
+
+  void keyDecided(String key, List<Extraction> candidates, Extraction winner) {
+    keyDecisions.add(new KeyDecision(key, candidates, winner));
+  }
+
+  void setRemainder(String remainder) {
+    this.remainder = remainder;
+  }
+
+  void setSimplifiedLabel(SimplifiedLabel simplifiedLabel) {
+    this.simplifiedLabel = simplifiedLabel;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  /**
+   * @return false if there are no rules for the label category (so nothing was evaluated).
+   */
+  public boolean isCategoryMapped() {
+    return categoryMapped;
+  }
+
+  public List<NodeEvaluation> getNodeEvaluations() {
+    return Collections.unmodifiableList(nodeEvaluations);
+  }
+
+  public List<KeyDecision> getKeyDecisions() {
+    return Collections.unmodifiableList(keyDecisions);
+  }
+
+  /**
+   * @return the label remainder, after removing the matched text, punctuation and stop words.
+   */
+  public String getRemainder() {
+    return remainder;
+  }
+
+  public SimplifiedLabel getSimplifiedLabel() {
+    return simplifiedLabel;
+  }
+
+  /**
+   * @return multi-line, human readable trace.
+   */
+  @Override
+  public String toString() {
+    StringBuilder trace = new StringBuilder();
+    trace.append(String.format("Label '%s' (category '%s')%n", label, category));
+    if (!categoryMapped) {
+      trace.append("  category not mapped, no rules evaluated\n");
+    }
+
+    trace.append("Nodes visited:\n");
+    for (NodeEvaluation evaluation : nodeEvaluations) {
+      trace.append(String.format("  %s%s -> %s%n", indent(evaluation.depth),
+          evaluation.getPath(), evaluation.matched ? "matched " + evaluation.matches : "no match"));
+    }
+
+    trace.append("Key decisions:\n");
+    for (KeyDecision decision : keyDecisions) {
+      String candidates = decision.candidates.stream()
+          .map(e -> e.getValue() + " (" + e.getPriority() + ")")
+          .collect(Collectors.joining(", "));
+      trace.append(String.format("  %s: [%s] -> %s%n", decision.key, candidates,
+          decision.winner == null ? "none" : decision.winner.getValue()));
+    }
+
+    trace.append(String.format("Remainder: '%s'%n", remainder));
+    trace.append(String.format("Simplified: '%s'%n",
+        simplifiedLabel == null ? null : simplifiedLabel.getSimplifiedLabel()));
+    return trace.toString();
+  }
+
+  private static String indent(int depth) {
+    StringBuilder indent = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      indent.append("  ");
+    }
+    return indent.toString();
+  }
+}
@@ -0,0 +1,95 @@
+package com.tmilar.labelsimplification.service;
+
+import static com.tmilar.labelsimplification.service.LabelSimplificationService.REMAINDER_KEY_NAME;
+
+import com.tmilar.labelsimplification.model.KeyOrdinals;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prepared subset of keys to simplify labels for, with
+ * {@link LabelSimplificationService#simplifyLabel(com.tmilar.labelsimplification.model.Label,
+ * LabelProjection)}.
+ *
+ * Only the tree nodes of the requested keys (and their ancestors) are evaluated, and the remainder
+ * is skipped. As the remainder depends on the matches of every key, requesting the
+ * {@link LabelSimplificationService#REMAINDER_KEY_NAME} key computes the full simplified label.
+ *
+ * The pruned trees are built on first use for each rules snapshot, so prepare a projection once
+ * and reuse it. Thread-safe.
+ */
+public class LabelProjection {
+
+  private final Set<String> keys;
+  private final boolean remainder;
+  // pruned trees of the last rules snapshot used.
+  private volatile Resolved resolved;
+
+  /**
+   * Pruned trees and wanted keys for one rules snapshot.
+   */
+  static class Resolved {
+
+    private final RuleSnapshot rules;
+    private final Map<String, CompiledTree> categoryTrees = new HashMap<>();
+    private final Map<String, boolean[]> categoryWantedKeys = new HashMap<>();
+
+    private Resolved(RuleSnapshot rules, Set<String> keys, boolean remainder) {
+      this.rules = rules;
+      for (String category : rules.getCategoryKeysSet().keySet()) {
+        if (remainder) {
+          // the remainder needs the matches of every key: compute the full label.
+          categoryTrees.put(category, rules.getTree(category));
+          continue;
+        }
+        KeyOrdinals keyOrdinals = rules.getKeyOrdinals(category);
+        boolean[] wantedKeys = new boolean[keyOrdinals.size()];
+        for (String key : keys) {
+          int ordinal = keyOrdinals.getOrdinal(key);
+          if (ordinal >= 0) {
+            wantedKeys[ordinal] = true;
+          }
+        }
+        categoryWantedKeys.put(category, wantedKeys);
+        categoryTrees.put(category, rules.getTree(category).project(wantedKeys));
+      }
+    }
+
+    CompiledTree getTree(String category) {
+      return categoryTrees.get(category);
+    }
+
+    /**
+     * @return wanted keys by key ordinal, or null if all of them are.
+     */
+    boolean[] getWantedKeys(String category) {
+      return categoryWantedKeys.get(category);
+    }
+  }
+
+  public LabelProjection(Collection<String> keys) {
+    this.keys = Collections.unmodifiableSet(new LinkedHashSet<>(keys));
+    this.remainder = this.keys.contains(REMAINDER_KEY_NAME);
+  }
+
+  public Set<String> getKeys() {
+    return keys;
+  }
+
+  public boolean includesRemainder() {
+    return remainder;
+  }
+
+  Resolved resolve(RuleSnapshot rules) {
+    Resolved current = resolved;
+    if (current == null || current.rules != rules) {
+      current = new Resolved(rules, keys, remainder);
+      resolved = current;
+    }
+    return current;
+  }
+}
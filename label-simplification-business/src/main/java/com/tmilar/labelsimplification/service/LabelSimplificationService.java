@@ -1,250 +1,383 @@
 package com.tmilar.labelsimplification.service;
 
+import com.tmilar.labelsimplification.model.Extraction;
 import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
 import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.LabelExtractions;
 import com.tmilar.labelsimplification.model.SimplifiedLabel;
-import com.tmilar.labelsimplification.util.TreeNode;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Simplifies labels according to the loaded extraction rules and stop words.
+ *
+ * Thread-safe: every simplification runs against the immutable rule snapshot that was current when
+ * it started, and {@link #reload(List, Map)} publishes a new snapshot with one atomic swap, so
+ * rules can be changed while labels are being simplified. Configure the service (remainder mode,
+ * fork/join pool, chunk size, cache) before sharing it between threads.
+ */
 public class LabelSimplificationService {
 
   private static final Logger logger = LogManager.getLogger(LabelSimplificationService.class);
   public static final String REMAINDER_KEY_NAME = "REMAINDER";
 
-  private Map<String, Set<String>> categoryKeysSet;
-  private Map<String, TreeNode<Extractor>> catExtractionsTreeRoot;
-  private Map<String, List<String>> categoryStopWords;
+  private static final Pattern PUNCTUATION_PATTERN = Pattern.compile("[-,+()&/!:]+?");
+  private static final Pattern MULTIPLE_SPACES_PATTERN = Pattern.compile(" +");
 
-  public void load(List<Extractor> extractors, Map<String, List<String>> categoryStopWords) {
-    this.categoryStopWords = categoryStopWords;
+  private static final int DEFAULT_BATCH_CHUNK_SIZE = 1024;
 
-    Extractor rootExtractor = new Extractor(null, null, "");
-    catExtractionsTreeRoot = new LinkedHashMap<>();
+  private final AtomicReference<RuleSnapshot> rules = new AtomicReference<>(RuleSnapshot.EMPTY);
 
-    categoryKeysSet = new LinkedHashMap<>();
+  private RemainderMode remainderMode = RemainderMode.MATCH_OFFSETS;
+  private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+  private int batchChunkSize = DEFAULT_BATCH_CHUNK_SIZE;
+  // optional cache of simplified labels, null when disabled.
+  private SimplificationCache cache;
+  // optional hot path metrics, null when disabled.
+  private SimplificationMetrics metrics;
+  private boolean earlyExit;
+  private RegexBudget regexBudget = new RegexBudget(RegexBudget.UNLIMITED, false);
 
-    extractors.forEach(extractor -> {
-      String keyName = extractor.getKeyName();
-      String extractedValue = extractor.getExtractValue();
-      String matcher = extractor.getMatcher();
-      String parentPath = extractor.getParentPath();
-      Integer priority = extractor.getPriority();
-      String category = extractor.getCategory();
+  public void load(List<Extractor> extractors, Map<String, List<String>> categoryStopWords) {
+    reload(extractors, categoryStopWords);
+  }
 
-      // initialize missing category stopwords with empty list
-      if (!this.categoryStopWords.containsKey(category)) {
-        this.categoryStopWords.put(category, Collections.emptyList());
-      }
+  /**
+   * Replace the current rules. The new trees and matchers are built aside, then published with
+   * one atomic swap: in-flight simplifications finish with the rules they started with, and the
+   * next ones see the new rules only once they're complete.
+   *
+   * @return the rule counts and build time of the published rules.
+   */
+  public ReloadResult reload(List<Extractor> extractors,
+      Map<String, List<String>> categoryStopWords) {
+    long start = System.nanoTime();
+    RuleSnapshot newRules = RuleSnapshot.compile(extractors, categoryStopWords);
+    return publish(newRules, extractors.size(), start);
+  }
 
-      // initialize cateogory extractions tree root
-      if (!categoryKeysSet.containsKey(category)) {
-        LinkedHashSet<String> keysSet = new LinkedHashSet<>();
-        keysSet.add(REMAINDER_KEY_NAME);
-        categoryKeysSet.put(category, keysSet);
-        catExtractionsTreeRoot.put(category, new TreeNode<>(rootExtractor));
-      }
+  /**
+   * Replace the current rules with the ones of a rules snapshot file, written by
+   * {@link #saveRules(Path, String)}. Publishes them the same way as
+   * {@link #reload(List, Map)}.
+   *
+   * @param expectedSourceChecksum - checksum of the current source rules; a snapshot saved from
+   *                               other source rules is rejected. Null to skip the check.
+   * @throws StaleRulesSnapshotException if the snapshot is outdated or corrupted, and should be
+   *                                     rebuilt from the source rules.
+   */
+  public ReloadResult loadRules(Path file, String expectedSourceChecksum) throws IOException {
+    long start = System.nanoTime();
+    RuleSnapshot newRules = RuleSnapshotCodec.read(file, expectedSourceChecksum);
+    return publish(newRules, newRules.getTreeNodesCount(), start);
+  }
 
-      categoryKeysSet.get(category).add(keyName);
-      TreeNode<Extractor> extractionsTreeRoot = catExtractionsTreeRoot.get(category);
+  /**
+   * Save the current rules (finished trees, merged matchers, stop words and keys) to a binary
+   * snapshot file, for fast startup with {@link #loadRules(Path, String)}.
+   *
+   * @param sourceChecksum - checksum of the source rules the current ones were loaded from.
+   */
+  public void saveRules(Path file, String sourceChecksum) throws IOException {
+    RuleSnapshotCodec.write(rules.get(), sourceChecksum, file);
+  }
 
-      // find parent extractor node, by parentPath.
-      // if parent present -> add/update child node by keyName
-      // if parent not present -> fail (must match some parent, at least the null root)
-      boolean isRootKey = parentPath == null
-          || Objects.equals(parentPath, "")
-          || Objects.equals(parentPath, "null");
+  private ReloadResult publish(RuleSnapshot newRules, int rulesCount, long buildStartNanos) {
+    long buildTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStartNanos);
 
-      String parentKey = isRootKey ? "" : parentPath;
+    List<String> backtrackingRisks = newRules.findBacktrackingRisks();
+    for (String risk : backtrackingRisks) {
+      logger.warn("Rule regex has nested quantifiers and may backtrack exponentially: {}", risk);
+    }
 
-      Optional<TreeNode<Extractor>> parentNodeOpt = extractionsTreeRoot.findTreeNodeBy(e ->
-          Objects.equals(e.getCurrentPath(), parentKey));
+    this.rules.set(newRules);
+    // the violations were of the old rules.
+    regexBudget.clear();
 
-      boolean isParentNodePresent = parentNodeOpt.isPresent();
+    // results of the old rules are no longer hits, just free them up.
+    invalidateCache();
 
-      if (!isParentNodePresent) {
-        logger.error(
-            "Required Parent node [path: '{}'] not found, can't add child node [key: '{}', extractValue: '{}']",
-            parentPath, keyName, extractedValue);
-        return;
-      }
+    ReloadResult reloadResult = new ReloadResult(rulesCount,
+        newRules.getCategoryKeysSet().size(), newRules.getTreeNodesCount(),
+        newRules.getStopWordsCount(), buildTimeMillis, backtrackingRisks);
+    logger.info("Loaded rules: {}", reloadResult);
+    return reloadResult;
+  }
 
-      // parent IS present. Add as new child node to the parent.
-      TreeNode<Extractor> parentNode = parentNodeOpt.get();
+  public SimplifiedLabel simplifyLabel(Label label) {
+    return simplifyLabel(rules.get(), label);
+  }
 
-      Optional<TreeNode<Extractor>> childNodeOptional = parentNode.findTreeNodeBy(e ->
-          Objects.equals(e.getCurrentPath(), extractor.getCurrentPath())
-      );
+  /**
+   * Simplify the label, computing only the projection keys. Results are not cached.
+   *
+   * @return the simplified label, with only the projection keys extractions. Its simplified
+   *     string joins only those. Requesting the {@link #REMAINDER_KEY_NAME} key computes the full
+   *     simplified label instead, with every key extractions, as the remainder depends on them.
+   */
+  public SimplifiedLabel simplifyLabel(Label label, LabelProjection projection) {
+    RuleSnapshot rules = this.rules.get();
+    SimplificationMetrics metrics = this.metrics;
+    LabelProjection.Resolved resolved = projection.resolve(rules);
+    if (metrics == null) {
+      return computeSimplifiedLabel(rules, label, resolved, null, null);
+    }
 
-      boolean isChildAlreadyPresent = childNodeOptional.isPresent();
+    long startNanos = System.nanoTime();
+    SimplifiedLabel simplifiedLabel = computeSimplifiedLabel(rules, label, resolved, metrics, null);
+    metrics.recordLabel(label.getCategory(), System.nanoTime() - startNanos);
+    return simplifiedLabel;
+  }
 
-      if (!isChildAlreadyPresent) {
-        // add the current as child , first time.
-        parentNode.addChild(extractor);
-      } else {
-        // get existing node, append the matcher regex.
-        TreeNode<Extractor> extractorTreeNode = childNodeOptional.get();
-        Extractor previous = extractorTreeNode.data;
+  /**
+   * Simplify the label, computing only the given keys. Prepares a new projection on each call: to
+   * simplify many labels, prepare a {@link LabelProjection} once instead.
+   */
+  public SimplifiedLabel simplifyLabel(Label label, Set<String> keys) {
+    return simplifyLabel(label, new LabelProjection(keys));
+  }
 
-        String combinedMatcher = previous.getMatcher() + "|" + matcher;
+  /**
+   * Simplify the label, tracing every node evaluated and every key priority decision.
+   * Meant for diagnostics: it's slower than {@link #simplifyLabel(Label)}, and skips the cache and
+   * the metrics.
+   */
+  public LabelExplanation explainLabel(Label label) {
+    LabelExplanation explanation = new LabelExplanation(label.getLabel(), label.getCategory());
+    computeSimplifiedLabel(rules.get(), label, null, explanation);
+    return explanation;
+  }
 
-        Extractor combinedExtractor = new Extractor(
-            keyName, extractedValue, combinedMatcher, parentPath, priority, category);
-        extractorTreeNode.data = combinedExtractor;
+  /**
+   * Simplify all the labels, in parallel on the configured fork/join pool.
+   * Labels are grouped by category, and each category split into chunks of labels.
+   *
+   * @return the simplified labels, in the same order as the input labels.
+   */
+  public List<SimplifiedLabel> simplifyAll(Collection<? extends Label> labels) {
+    RuleSnapshot rules = this.rules.get();
+    List<? extends Label> labelsList = labels instanceof List && labels instanceof RandomAccess
+        ? (List<? extends Label>) labels : new ArrayList<>(labels);
+
+    // group label indexes by category.
+    Map<String, int[]> categoryLabelIndexes = new HashMap<>();
+    Map<String, Integer> categoryCounts = new HashMap<>();
+    labelsList.forEach(label -> categoryCounts.merge(label.getCategory(), 1, Integer::sum));
+    categoryCounts.forEach((category, count) -> categoryLabelIndexes.put(category, new int[count]));
+    categoryCounts.clear();
+    for (int i = 0; i < labelsList.size(); i++) {
+      String category = labelsList.get(i).getCategory();
+      int position = categoryCounts.merge(category, 1, Integer::sum) - 1;
+      categoryLabelIndexes.get(category)[position] = i;
+    }
+
+    SimplifiedLabel[] results = new SimplifiedLabel[labelsList.size()];
+    List<SimplifyAllTask> categoryTasks = new ArrayList<>();
+    categoryLabelIndexes.forEach((category, labelIndexes) -> categoryTasks.add(
+        new SimplifyAllTask(rules, this::simplifyLabel, labelsList, labelIndexes, 0,
+            labelIndexes.length, batchChunkSize, results)));
+
+    forkJoinPool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        invokeAll(categoryTasks);
       }
     });
+
+    return Arrays.asList(results);
   }
 
   /**
-   * Visit tree nodes in-order, depth-first search.
-   * Run a pre-defined visitor function, which also decides if traversal should proceed to children.
-   *
-   * @param visitor - node visitor fn. Return true if should traverse to children, false otherwise.
+   * Lazily simplify a stream of labels. All of them run against the same rules snapshot; the
+   * stream ordering and parallelism are kept as given.
    */
-  private void visitTree(TreeNode<Extractor> treeNode,
-      Function<TreeNode<Extractor>, Boolean> visitor) {
+  public Stream<SimplifiedLabel> simplifyAll(Stream<? extends Label> labels) {
+    RuleSnapshot rules = this.rules.get();
+    return labels.map(label -> simplifyLabel(rules, label));
+  }
 
-    // visit {tree} node.
-    // If node.key is in map, save the value, and continue to children.
-    // If not, don't (just continue on the same level).
+  private SimplifiedLabel simplifyLabel(RuleSnapshot rules, Label label) {
+    SimplificationMetrics metrics = this.metrics;
+    if (metrics == null) {
+      return simplifyLabel(rules, label, null);
+    }
 
-    Boolean traverse = visitor.apply(treeNode);
+    long startNanos = System.nanoTime();
+    SimplifiedLabel simplifiedLabel = simplifyLabel(rules, label, metrics);
+    metrics.recordLabel(label.getCategory(), System.nanoTime() - startNanos);
+    return simplifiedLabel;
+  }
 
-    if (!traverse) {
-      return;
+  private SimplifiedLabel simplifyLabel(RuleSnapshot rules, Label label,
+      SimplificationMetrics metrics) {
+    SimplificationCache cache = this.cache;
+    if (cache == null) {
+      return computeSimplifiedLabel(rules, label, metrics, null);
     }
 
-    List<TreeNode<Extractor>> children = treeNode.children;
-
-    children.forEach(node -> visitTree(node, visitor));
+    SimplifiedLabel cached = cache.get(rules, label.getCategory(), label.getLabel());
+    if (cached != null) {
+      return cached;
+    }
+    SimplifiedLabel simplifiedLabel = computeSimplifiedLabel(rules, label, metrics, null);
+    cache.put(rules, label.getCategory(), label.getLabel(), simplifiedLabel);
+    return simplifiedLabel;
   }
 
-  public SimplifiedLabel simplifyLabel(Label label) {
-    Map<String, List<Pair<Extractor, String>>> extractionsMap = new HashMap<>();
+  private SimplifiedLabel computeSimplifiedLabel(RuleSnapshot rules, Label label,
+      SimplificationMetrics metrics, LabelExplanation explanation) {
+    return computeSimplifiedLabel(rules, label, null, metrics, explanation);
+  }
 
+  /**
+   * @param projection - keys to compute, or null to compute all of them.
+   */
+  private SimplifiedLabel computeSimplifiedLabel(RuleSnapshot rules, Label label,
+      LabelProjection.Resolved projection, SimplificationMetrics metrics,
+      LabelExplanation explanation) {
     String labelStr = label.getLabel();
     String category = label.getCategory();
 
-    if (!categoryKeysSet.containsKey(category)) {
-      logger.debug("Label category '{}' not mapped (label: '{}'), returning empty label",
-          category, labelStr);
+    if (!rules.hasCategory(category)) {
+      if (explanation != null) {
+        explanation.categoryNotMapped();
+      }
       return new SimplifiedLabel(label, "");
     }
 
-    Set<String> keysSet = categoryKeysSet.get(category);
-    TreeNode<Extractor> extractionsTreeRoot = catExtractionsTreeRoot.get(category);
+    KeyOrdinals keyOrdinals = rules.getKeyOrdinals(category);
+    CompiledTree tree = projection == null ? rules.getTree(category)
+        : projection.getTree(category);
+    boolean[] wantedKeys = projection == null ? null : projection.getWantedKeys(category);
+
+    ExtractionsCollector collector = new ExtractionsCollector(keyOrdinals, wantedKeys, tree);
+    // the explanation lists every candidate, so it never exits early.
+    tree.visitMatching(labelStr, collector, metrics, regexBudget,
+        earlyExit && explanation == null, explanation);
+
+    // grab the highest-priority matched extraction of each key, in keys order.
+    int[] keyWinners = collector.winners();
+    int remainderOrdinal = keyOrdinals.getOrdinal(REMAINDER_KEY_NAME);
+
+    String cleanRemainder = "";
+    if (wantedKeys == null) {
+      // keep the winner extractions (and their regex matches), to calculate the remainder.
+      List<Extraction> winnerExtractions = new ArrayList<>(keyWinners.length);
+      for (int winner : keyWinners) {
+        if (winner >= 0) {
+          winnerExtractions.add(collector.getExtraction(winner));
+        }
+      }
+      StopWordMatcher stopWordMatcher = rules.getStopWordMatcher(category);
+      cleanRemainder = computeRemainder(labelStr, winnerExtractions, stopWordMatcher);
+    }
+
+    // the simplified string is joined on first request.
+    LabelExtractions labelExtractions = collector
+        .toLabelExtractions(keyWinners, remainderOrdinal, cleanRemainder);
+    SimplifiedLabel simplifiedLabel = new SimplifiedLabel(labelStr, null, labelExtractions);
 
-    Function<TreeNode<Extractor>, Boolean> treeNodeVisitor = node -> {
-      if (node.parent == null) {
-        // root node has no logic, just traverse to children.
-        return true;
+    if (explanation != null) {
+      for (int ordinal = 0; ordinal < keyWinners.length; ordinal++) {
+        if (ordinal != remainderOrdinal) {
+          explanation.keyDecided(keyOrdinals.getKey(ordinal), collector.keyExtractions(ordinal),
+              labelExtractions.getWinner(ordinal));
+        }
       }
+      explanation.setRemainder(cleanRemainder);
+      explanation.setSimplifiedLabel(simplifiedLabel);
+    }
+    return simplifiedLabel;
+  }
 
-      Extractor extractor = node.data;
+  private String computeRemainder(String label, List<Extraction> extractions,
+      StopWordMatcher stopWordMatcher) {
 
-      // initialize extractionsMap for keyName
-      String keyName = extractor.getKeyName();
+    String labelRemainder = remainderMode == RemainderMode.MATCHED_SUBSTRINGS
+        ? removeMatchedSubstrings(label, extractions)
+        : removeMatchedRegions(label, extractions);
 
-      if (!extractionsMap.containsKey(keyName)) {
-        extractionsMap.put(keyName, new ArrayList<>());
-      }
+    // remove stop words from remainder.
+    String cleanRemainder = labelRemainder;
 
-      // try extract value
-      String extracted = extractor.extract(labelStr);
-      if (extracted == null) {
-        // should not traverse.
-        return false;
-      }
+    // remove punctuation
+    cleanRemainder = PUNCTUATION_PATTERN.matcher(cleanRemainder).replaceAll("");
 
-      List<Pair<Extractor, String>> keyExtractions = extractionsMap.get(keyName);
-      keyExtractions.add(Pair.of(extractor, extracted));
-      // matched -> next should traverse to children (if any).
-      return true;
-    };
+    // remove stop words
+    cleanRemainder = stopWordMatcher.removeStopWords(cleanRemainder);
 
-    visitTree(extractionsTreeRoot, treeNodeVisitor);
+    // simplify multiple spaces to single-spaces
+    cleanRemainder = MULTIPLE_SPACES_PATTERN.matcher(cleanRemainder).replaceAll(" ").trim();
 
-    List<String> labelExtractions = new ArrayList<>();
-    Map<String, List<String>> regexMatches = new LinkedHashMap<>();
+    return cleanRemainder;
+  }
 
-    // for each key, retrieve it's extraction.
-    keysSet.forEach(key -> {
-      if (!extractionsMap.containsKey(key)) {
-        if (!Objects.equals(key, REMAINDER_KEY_NAME)) {
-          logger.error("No key '{}' present in extractionsMap for label '{}' "
-                  + "(should not happen, check if all matchers were key-mapped properly).",
-              key, labelStr);
+  /**
+   * Remove the matched regions of the label, merging the match spans of all the extractions.
+   */
+  private static String removeMatchedRegions(String label, List<Extraction> extractions) {
+    // encode each non-empty span as (start << 32 | end), so they sort by start offset.
+    long[] spans = new long[8];
+    int spansCount = 0;
+    for (Extraction extraction : extractions) {
+      for (int i = 0; i < extraction.getMatchSpansCount(); i++) {
+        int start = extraction.getMatchStart(i);
+        int end = extraction.getMatchEnd(i);
+        if (start == end) {
+          continue; // skip empty matches
+        }
+        if (spansCount == spans.length) {
+          spans = Arrays.copyOf(spans, spansCount * 2);
         }
-        return;
+        spans[spansCount++] = ((long) start << 32) | end;
       }
+    }
 
-      List<Pair<Extractor, String>> keyExtractions = extractionsMap.get(key);
-
-      if (keyExtractions.isEmpty()) {
-        logger.debug("No extractions for key '{}' matched in label '{}'", key, labelStr);
-        return;
-      }
-      if (keyExtractions.size() > 1) {
-        String keyExtractionsListStr = keyExtractions.stream()
-            .map(e -> e.getValue() + " (" + e.getKey().getPriority() + ")")
-            .collect(Collectors.joining(", "));
-        logger.debug("More than 1 extractions ({}) for key '{}' matched in label '{}' -> '{}'",
-            keyExtractions.size(), key, labelStr, keyExtractionsListStr);
+    if (spansCount == 0) {
+      return label.trim();
+    }
+    Arrays.sort(spans, 0, spansCount);
+
+    StringBuilder remainder = new StringBuilder(label.length());
+    int uncoveredStart = 0;
+    for (int i = 0; i < spansCount; i++) {
+      int start = (int) (spans[i] >>> 32);
+      int end = (int) spans[i];
+      if (start > uncoveredStart) {
+        remainder.append(label, uncoveredStart, start);
       }
-
-      Pair<Extractor, String> firstExtractionPair = Collections.max(
-          keyExtractions,
-          Comparator.comparing(k -> k.getKey().getPriority())
-      );
-
-      // grab the highest-priority matched extraction.
-      labelExtractions.add(firstExtractionPair.getValue());
-
-      // grab the regex matches, used to calculate remainder later.
-      List<String> extractorRegexMatches = firstExtractionPair.getKey().findRegexMatches(labelStr);
-      regexMatches.put(key, extractorRegexMatches);
-    });
-
-    // get remainder, then append to labelExtractions & extractionsMap
-    List<String> stopwords = categoryStopWords.get(category);
-    String cleanRemainder = computeRemainder(labelStr, regexMatches, stopwords);
-
-    if (StringUtils.isNotEmpty(cleanRemainder)) {
-      labelExtractions.add(cleanRemainder);
-      extractionsMap.put(
-          REMAINDER_KEY_NAME,
-          Collections.singletonList(Pair.of(null, cleanRemainder))
-      );
+      uncoveredStart = Math.max(uncoveredStart, end);
     }
+    remainder.append(label, uncoveredStart, label.length());
 
-    String simplifiedString = String.join(" ", labelExtractions);
-
-    SimplifiedLabel simplifiedLabel = new SimplifiedLabel(labelStr, simplifiedString,
-        extractionsMap);
-    return simplifiedLabel;
+    return remainder.toString().trim();
   }
 
-  private String computeRemainder(String label, Map<String, List<String>> regexMatches,
-      List<String> stopwords) {
-
+  /**
+   * Legacy remainder: remove every occurrence of each matched substring.
+   */
+  private static String removeMatchedSubstrings(String label, List<Extraction> extractions) {
     String remainder = label; // initialize as full label, then remove the matches.
-    for (List<String> matches : regexMatches.values()) {
-      for (String match : matches) {
+    for (Extraction extraction : extractions) {
+      for (String match : extraction.getMatches()) {
         if (match.length() == 0) {
           continue; // skip empty matches
         }
@@ -252,26 +385,130 @@ public class LabelSimplificationService {
       }
     }
 
-    String labelRemainder = remainder.replaceAll("#", "").trim();
+    return remainder.replaceAll("#", "").trim();
+  }
 
-    // remove stop words from remainder.
-    String cleanRemainder = labelRemainder;
+  public RemainderMode getRemainderMode() {
+    return remainderMode;
+  }
 
-    // remove punctuation
-    cleanRemainder = cleanRemainder.replaceAll("[-,+()&/!:]+?", "");
+  /**
+   * @param remainderMode - how matched text is removed from the label remainder. Defaults to
+   *                      {@link RemainderMode#MATCH_OFFSETS}.
+   */
+  public void setRemainderMode(RemainderMode remainderMode) {
+    this.remainderMode = remainderMode;
+    invalidateCache();
+  }
 
-    // remove stop words
-    for (String word : stopwords) {
-      cleanRemainder = cleanRemainder.replaceAll("(?i)" + word, "");
+  public ForkJoinPool getForkJoinPool() {
+    return forkJoinPool;
+  }
+
+  /**
+   * @param forkJoinPool - pool running the {@link #simplifyAll(Collection)} batches. Defaults to
+   *                     the common pool.
+   */
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  public int getBatchChunkSize() {
+    return batchChunkSize;
+  }
+
+  /**
+   * @param batchChunkSize - max labels simplified sequentially by one batch task.
+   */
+  public void setBatchChunkSize(int batchChunkSize) {
+    this.batchChunkSize = Math.max(1, batchChunkSize);
+  }
+
+  /**
+   * Enable caching of simplified labels by (category, label text), with LRU eviction.
+   * The cache is invalidated each time new rules are loaded, or a setting changing the results
+   * (remainder mode, early exit, regex budget) is set.
+   *
+   * @param maximumSize - max cached labels (approximate). 0 disables the cache.
+   */
+  public void setCacheMaximumSize(long maximumSize) {
+    this.cache = maximumSize > 0 ? new SimplificationCache(maximumSize) : null;
+  }
+
+  private void invalidateCache() {
+    SimplificationCache cache = this.cache;
+    if (cache != null) {
+      cache.invalidateAll();
     }
+  }
 
-    // simplify multiple spaces to single-spaces
-    cleanRemainder = cleanRemainder.replaceAll(" +", " ").trim();
+  public CacheStats getCacheStats() {
+    SimplificationCache cache = this.cache;
+    return cache == null ? CacheStats.EMPTY : cache.stats();
+  }
 
-    return cleanRemainder;
+  public SimplificationMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics - where to record extractor evaluations and label simplification times, ie.
+   *                an {@link InMemorySimplificationMetrics}. Null (the default) disables metrics,
+   *                so nothing gets measured.
+   */
+  public void setMetrics(SimplificationMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public boolean isEarlyExit() {
+    return earlyExit;
+  }
+
+  /**
+   * @param earlyExit - true to skip evaluating the extractors that can't change the result: once
+   *                  a key matched at its highest priority, its remaining extractors (and their
+   *                  subtrees, if all of their keys are decided too) are skipped. Extracted values
+   *                  stay the same, but the extractions map only lists the candidates evaluated.
+   *                  Disabled by default; {@link #explainLabel(Label)} always evaluates them all.
+   */
+  public void setEarlyExit(boolean earlyExit) {
+    this.earlyExit = earlyExit;
+    invalidateCache();
+  }
+
+  public RegexBudget getRegexBudget() {
+    return regexBudget;
+  }
+
+  /**
+   * @param regexBudget - execution budget of the rules regexes. Defaults to
+   *                    {@link RegexBudget#UNLIMITED}: evaluations exceeding a budget count as not
+   *                    matched, changing the results.
+   */
+  public void setRegexBudget(RegexBudget regexBudget) {
+    this.regexBudget = regexBudget;
+    invalidateCache();
+  }
+
+  /**
+   * @return the rules that exceeded the regex budget since the current rules were loaded.
+   */
+  public List<RegexBudgetViolation> getRegexBudgetViolations() {
+    return regexBudget.getViolations();
+  }
+
+  /**
+   * @return fingerprint of the current rules, to find out which labels a rules change affects.
+   */
+  public RulesFingerprint getRulesFingerprint() {
+    return RulesFingerprint.of(rules.get(), remainderMode, regexBudget);
+  }
+
+  RuleSnapshot getRuleSnapshot() {
+    return rules.get();
   }
 
   public Map<String, Set<String>> getCategoryMappings() {
-    return categoryKeysSet;
+    return rules.get().getCategoryKeysSet();
   }
 }
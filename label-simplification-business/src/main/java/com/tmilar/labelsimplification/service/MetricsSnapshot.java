@@ -0,0 +1,32 @@
+package com.tmilar.labelsimplification.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time copy of {@link InMemorySimplificationMetrics}.
+ */
+public class MetricsSnapshot {
+
+  private final List<CategoryMetrics> categories;
+  private final List<ExtractorMetrics> extractors;
+
+  public MetricsSnapshot(List<CategoryMetrics> categories, List<ExtractorMetrics> extractors) {
+    this.categories = Collections.unmodifiableList(categories);
+    this.extractors = Collections.unmodifiableList(extractors);
+  }
+
+  /**
+   * @return metrics of each category, by category name.
+   */
+  public List<CategoryMetrics> getCategories() {
+    return categories;
+  }
+
+  /**
+   * @return metrics of each extractor, most expensive (total evaluation time) first.
+   */
+  public List<ExtractorMetrics> getExtractors() {
+    return extractors;
+  }
+}
@@ -0,0 +1,223 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.util.BudgetedCharSequence.BudgetExceededException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Execution budget of the rules regexes: each regex evaluation against a label may read at most
+ * {@code steps} label characters, backtracking included. Evaluations running out of steps are
+ * aborted and count as not matched, so one pathological rule can't stall a whole batch.
+ *
+ * Aborted evaluations change the results, so the budget is opt-in: {@link #UNLIMITED} by default.
+ *
+ * Rules exceeding the budget are reported by {@link #getViolations()}, and when quarantine is
+ * enabled, they're not evaluated anymore (until new rules are loaded). Thread-safe.
+ */
+public class RegexBudget {
+
+  private static final Logger logger = LogManager.getLogger(RegexBudget.class);
+
+  /**
+   * Steps for no limit: every regex evaluation runs to completion.
+   */
+  public static final long UNLIMITED = 0;
+
+  /**
+   * Suggested steps per evaluation, when enabled: far more than any sane regex needs on a label,
+   * and still milliseconds of work.
+   */
+  public static final long SUGGESTED_STEPS = 1_000_000;
+
+  private final long steps;
+  private final boolean quarantine;
+  private final Map<Extractor, Violation> violations = new ConcurrentHashMap<>();
+
+  private static class Violation {
+
+    private final LongAdder count = new LongAdder();
+    private volatile String sampleLabel;
+    private volatile boolean quarantined;
+  }
+
+  /**
+   * @param steps      - max label characters read per regex evaluation, or {@link #UNLIMITED}.
+   * @param quarantine - true to stop evaluating the regexes exceeding the budget.
+   */
+  public RegexBudget(long steps, boolean quarantine) {
+    this.steps = Math.max(0, steps);
+    this.quarantine = quarantine;
+  }
+
+  public long getSteps() {
+    return steps;
+  }
+
+  public boolean isQuarantine() {
+    return quarantine;
+  }
+
+  /**
+   * Evaluate the extractor regex within the budget.
+   *
+   * @param foldedLabel - the label case folded, or null to fold it if needed.
+   * @return the extraction, or null if the label doesn't match, the regex ran out of steps, or
+   *     its rule is quarantined.
+   */
+  Extraction extract(Extractor extractor, String label, String foldedLabel) {
+    if (steps == UNLIMITED) {
+      return extractor.extract(label, foldedLabel, UNLIMITED);
+    }
+    Violation violation = violations.isEmpty() ? null : violations.get(extractor);
+    if (violation != null && violation.quarantined) {
+      return null;
+    }
+
+    try {
+      return extractor.extract(label, foldedLabel, steps);
+    } catch (BudgetExceededException e) {
+      exceeded(extractor, label);
+      return null;
+    }
+  }
+
+  private void exceeded(Extractor extractor, String label) {
+    Violation violation = violations.computeIfAbsent(extractor, e -> {
+      logger.warn("Regex of rule [path: '{}', category: '{}', matcher: '{}'] exceeded {} steps on"
+              + " label '{}'{}", e.getCurrentPath(), e.getCategory(), e.getMatcher(), steps,
+          label, quarantine ? ", quarantined" : "");
+      return new Violation();
+    });
+    violation.count.increment();
+    violation.sampleLabel = label;
+    violation.quarantined = quarantine;
+  }
+
+  /**
+   * @return the rules that exceeded the budget, most exceeded first.
+   */
+  public List<RegexBudgetViolation> getViolations() {
+    List<RegexBudgetViolation> report = new ArrayList<>();
+    violations.forEach((extractor, violation) -> report.add(new RegexBudgetViolation(extractor,
+        violation.count.sum(), violation.sampleLabel, violation.quarantined)));
+    report.sort(Comparator.comparingLong(RegexBudgetViolation::getCount).reversed());
+    return report;
+  }
+
+  /**
+   * Forget the violations (and lift the quarantines), ie. because new rules were loaded.
+   */
+  public void clear() {
+    violations.clear();
+  }
+
+  /**
+   * Static check for regexes likely to backtrack exponentially (or polynomially, with a large
+   * degree): a repetition ({@code *}, {@code +}, <code>{n,}</code>, <code>{n,m}</code>) of a group
+   * that contains an unbounded quantifier, like {@code (a+)+}, {@code (\w+\s?)*} or
+   * <code>(.*a){20}</code>.
+   */
+  static boolean hasNestedQuantifiers(String regex) {
+    // per open group: whether its content has an unbounded quantifier.
+    Deque<boolean[]> groups = new ArrayDeque<>();
+    boolean[] current = new boolean[1];
+    // whether the last atom is a group with an unbounded quantifier inside.
+    boolean lastAtomQuantifiedGroup = false;
+
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        lastAtomQuantifiedGroup = false;
+      } else if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        lastAtomQuantifiedGroup = false;
+      } else if (c == '(') {
+        groups.push(current);
+        current = new boolean[1];
+        i++;
+        lastAtomQuantifiedGroup = false;
+      } else if (c == ')') {
+        boolean inner = current[0];
+        current = groups.isEmpty() ? new boolean[1] : groups.pop();
+        current[0] |= inner;
+        i++;
+        lastAtomQuantifiedGroup = inner;
+      } else {
+        int quantifierEnd = unboundedQuantifierEnd(regex, i);
+        if (lastAtomQuantifiedGroup && (quantifierEnd > i || isRepetition(regex, i))) {
+          return true;
+        }
+        if (quantifierEnd > i) {
+          current[0] = true;
+          i = quantifierEnd;
+        } else {
+          i++;
+        }
+        lastAtomQuantifiedGroup = false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if there's a bounded quantifier allowing more than one repetition at i.
+   */
+  private static boolean isRepetition(String regex, int i) {
+    if (regex.charAt(i) != '{') {
+      return false;
+    }
+    int close = regex.indexOf('}', i);
+    if (close < i) {
+      return false;
+    }
+    String bounds = regex.substring(i + 1, close);
+    if (!bounds.matches("\\d+(,\\d+)?")) {
+      return false;
+    }
+    String max = bounds.substring(bounds.indexOf(',') + 1);
+    return max.length() > 1 || Integer.parseInt(max) > 1;
+  }
+
+  private static int skipCharacterClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+    while (i < regex.length() && regex.charAt(i) != ']') {
+      i += regex.charAt(i) == '\\' ? 2 : 1;
+    }
+    return i + 1;
+  }
+
+  /**
+   * @return the end of the unbounded quantifier starting at i, or i if there's none.
+   */
+  private static int unboundedQuantifierEnd(String regex, int i) {
+    char c = regex.charAt(i);
+    if (c == '*' || c == '+') {
+      return i + 1;
+    }
+    if (c == '{') {
+      int close = regex.indexOf('}', i);
+      if (close > i && regex.substring(i + 1, close).matches("\\d+,")) {
+        return close + 1;
+      }
+    }
+    return i;
+  }
+}
@@ -0,0 +1,50 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+
+/**
+ * A rule whose regex exceeded the {@link RegexBudget}.
+ */
+public class RegexBudgetViolation {
+
+  private final Extractor extractor;
+  private final long count;
+  private final String sampleLabel;
+  private final boolean quarantined;
+
+  RegexBudgetViolation(Extractor extractor, long count, String sampleLabel, boolean quarantined) {
+    this.extractor = extractor;
+    this.count = count;
+    this.sampleLabel = sampleLabel;
+    this.quarantined = quarantined;
+  }
+
+  public Extractor getExtractor() {
+    return extractor;
+  }
+
+  /**
+   * @return evaluations aborted for exceeding the budget.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return the last label the regex exceeded the budget on.
+   */
+  public String getSampleLabel() {
+    return sampleLabel;
+  }
+
+  public boolean isQuarantined() {
+    return quarantined;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (category '%s', matcher '%s'): %d evaluations aborted%s, ie. '%s'",
+        extractor.getCurrentPath(), extractor.getCategory(), extractor.getMatcher(), count,
+        quarantined ? ", quarantined" : "", sampleLabel);
+  }
+}
@@ -0,0 +1,75 @@
+package com.tmilar.labelsimplification.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a rules (re)load: what was published, and how long building it took.
+ */
+public class ReloadResult {
+
+  private final int rulesCount;
+  private final int categoriesCount;
+  private final int treeNodesCount;
+  private final int stopWordsCount;
+  private final long buildTimeMillis;
+  private final List<String> backtrackingRisks;
+
+  public ReloadResult(int rulesCount, int categoriesCount, int treeNodesCount,
+      int stopWordsCount, long buildTimeMillis) {
+    this(rulesCount, categoriesCount, treeNodesCount, stopWordsCount, buildTimeMillis,
+        Collections.emptyList());
+  }
+
+  public ReloadResult(int rulesCount, int categoriesCount, int treeNodesCount,
+      int stopWordsCount, long buildTimeMillis, List<String> backtrackingRisks) {
+    this.rulesCount = rulesCount;
+    this.categoriesCount = categoriesCount;
+    this.treeNodesCount = treeNodesCount;
+    this.stopWordsCount = stopWordsCount;
+    this.buildTimeMillis = buildTimeMillis;
+    this.backtrackingRisks = Collections.unmodifiableList(backtrackingRisks);
+  }
+
+  /**
+   * @return extractor rules given to the reload (before merging rules with the same path), or
+   *     tree nodes read when loaded from a rules snapshot file.
+   */
+  public int getRulesCount() {
+    return rulesCount;
+  }
+
+  public int getCategoriesCount() {
+    return categoriesCount;
+  }
+
+  /**
+   * @return extraction tree nodes published, excluding the category roots.
+   */
+  public int getTreeNodesCount() {
+    return treeNodesCount;
+  }
+
+  public int getStopWordsCount() {
+    return stopWordsCount;
+  }
+
+  public long getBuildTimeMillis() {
+    return buildTimeMillis;
+  }
+
+  /**
+   * @return the rules (as "category: path matcher") whose regex has nested quantifiers, so it may
+   *     backtrack exponentially on some labels.
+   */
+  public List<String> getBacktrackingRisks() {
+    return backtrackingRisks;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReloadResult{rules=%d, categories=%d, treeNodes=%d, stopWords=%d,"
+            + " buildTime=%dms, backtrackingRisks=%d}", rulesCount, categoriesCount,
+        treeNodesCount, stopWordsCount, buildTimeMillis, backtrackingRisks.size());
+  }
+}
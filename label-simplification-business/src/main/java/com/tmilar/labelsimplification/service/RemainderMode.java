@@ -0,0 +1,26 @@
+package com.tmilar.labelsimplification.service;
+
+import java.util.Locale;
+
+/**
+ * How the matched text is removed from the label to compute its remainder.
+ */
+public enum RemainderMode {
+
+  /**
+   * Remove exactly the matched regions of the label, by their start/end offsets.
+   */
+  MATCH_OFFSETS,
+
+  /**
+   * Legacy behavior: remove every occurrence of each matched substring anywhere in the label.
+   */
+  MATCHED_SUBSTRINGS;
+
+  /**
+   * @param name - mode name, as an option value: ie. 'match-offsets' or 'matched-substrings'.
+   */
+  public static RemainderMode parse(String name) {
+    return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+  }
+}
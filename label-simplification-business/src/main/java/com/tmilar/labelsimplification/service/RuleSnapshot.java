@@ -0,0 +1,137 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
+import com.tmilar.labelsimplification.util.TreeNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, fully compiled set of rules: the per-category extraction trees, keys and stop words,
+ * plus their compiled matchers.
+ *
+ * A snapshot is never modified once built, so it can be shared by any number of threads
+ * simplifying labels while a newer snapshot is being loaded.
+ */
+class RuleSnapshot {
+
+  static final RuleSnapshot EMPTY = compile(Collections.emptyList(), Collections.emptyMap());
+
+  private final Map<String, Set<String>> categoryKeysSet;
+  private final Map<String, KeyOrdinals> categoryKeyOrdinals = new HashMap<>();
+  private final Map<String, CompiledTree> categoryTrees = new HashMap<>();
+  private final Map<String, List<String>> categoryStopWords;
+  private final Map<String, StopWordMatcher> categoryStopWordMatchers = new HashMap<>();
+  private int treeNodesCount;
+
+  RuleSnapshot(Map<String, Set<String>> categoryKeysSet,
+      Map<String, TreeNode<Extractor>> catExtractionsTreeRoot,
+      Map<String, List<String>> categoryStopWords) {
+
+    Map<String, Set<String>> keysSet = new LinkedHashMap<>();
+    categoryKeysSet.forEach((category, keys) ->
+        keysSet.put(category, Collections.unmodifiableSet(new LinkedHashSet<>(keys))));
+    this.categoryKeysSet = Collections.unmodifiableMap(keysSet);
+
+    Map<String, List<String>> stopWords = new LinkedHashMap<>();
+    categoryStopWords.forEach((category, words) ->
+        stopWords.put(category, Collections.unmodifiableList(new ArrayList<>(words))));
+    this.categoryStopWords = Collections.unmodifiableMap(stopWords);
+
+    // assign dense ordinals to each category keys, in keys set order.
+    this.categoryKeysSet.forEach((category, keys) ->
+        categoryKeyOrdinals.put(category, new KeyOrdinals(keys)));
+
+    // compile the trees into arrays, with one matching engine per node for all of its children.
+    // the tree nodes are not kept.
+    catExtractionsTreeRoot.forEach((category, root) -> {
+      CompiledTree tree = new CompiledTree(root, categoryKeyOrdinals.get(category));
+      categoryTrees.put(category, tree);
+      treeNodesCount += tree.getNodesCount();
+    });
+
+    // compile the stop words once per category.
+    this.categoryStopWords.forEach((category, words) ->
+        categoryStopWordMatchers.put(category, new StopWordMatcher(words)));
+  }
+
+  /**
+   * Build the extraction trees for the rules, and compile them into a new snapshot.
+   */
+  static RuleSnapshot compile(List<Extractor> extractors,
+      Map<String, List<String>> categoryStopWords) {
+
+    // initialize missing category stopwords with empty list
+    Map<String, List<String>> stopWords = new LinkedHashMap<>(categoryStopWords);
+    extractors.forEach(extractor ->
+        stopWords.putIfAbsent(extractor.getCategory(), Collections.emptyList()));
+
+    ExtractionTreeBuilder treeBuilder = new ExtractionTreeBuilder().addAll(extractors);
+
+    return new RuleSnapshot(treeBuilder.getCategoryKeysSet(),
+        treeBuilder.getCatExtractionsTreeRoot(), stopWords);
+  }
+
+  boolean hasCategory(String category) {
+    return categoryKeysSet.containsKey(category);
+  }
+
+  Set<String> getKeysSet(String category) {
+    return categoryKeysSet.get(category);
+  }
+
+  KeyOrdinals getKeyOrdinals(String category) {
+    return categoryKeyOrdinals.get(category);
+  }
+
+  CompiledTree getTree(String category) {
+    return categoryTrees.get(category);
+  }
+
+  StopWordMatcher getStopWordMatcher(String category) {
+    return categoryStopWordMatchers.get(category);
+  }
+
+  Map<String, Set<String>> getCategoryKeysSet() {
+    return categoryKeysSet;
+  }
+
+  Map<String, List<String>> getCategoryStopWords() {
+    return categoryStopWords;
+  }
+
+  /**
+   * @return the rules (as "category: path 'matcher'") whose regex may backtrack exponentially.
+   */
+  List<String> findBacktrackingRisks() {
+    List<String> risks = new ArrayList<>();
+    for (String category : categoryKeysSet.keySet()) {
+      CompiledTree tree = categoryTrees.get(category);
+      if (tree == null) {
+        continue;
+      }
+      for (int node = CompiledTree.ROOT + 1; node <= tree.getNodesCount(); node++) {
+        Extractor extractor = tree.getExtractor(node);
+        if (RegexBudget.hasNestedQuantifiers(extractor.getMatcher())) {
+          risks.add(String.format("%s: %s '%s'", category, extractor.getCurrentPath(),
+              extractor.getMatcher()));
+        }
+      }
+    }
+    return risks;
+  }
+
+  int getTreeNodesCount() {
+    return treeNodesCount;
+  }
+
+  int getStopWordsCount() {
+    return categoryStopWords.values().stream().mapToInt(List::size).sum();
+  }
+}
@@ -0,0 +1,208 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.util.TreeNode;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format of a {@link RuleSnapshot}: the finished extraction trees (with matchers of
+ * rules with the same path already merged), keys and stop words of every category.
+ *
+ * Layout (big-endian): magic, format version, source rules checksum, categories, then a CRC32 of
+ * everything before it. Each category holds its keys, its stop words and its tree nodes in
+ * depth-first order, each node followed by its children count, so the trees are rebuilt in one
+ * linear pass without any path lookup.
+ */
+class RuleSnapshotCodec {
+
+  private static final int MAGIC = 0x4C53524C; // "LSRL"
+  static final int FORMAT_VERSION = 1;
+
+  private RuleSnapshotCodec() {
+  }
+
+  static void write(RuleSnapshot rules, String sourceChecksum, Path file) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    writeString(out, sourceChecksum);
+
+    Map<String, Set<String>> categoryKeysSet = rules.getCategoryKeysSet();
+    out.writeInt(categoryKeysSet.size());
+    for (Map.Entry<String, Set<String>> category : categoryKeysSet.entrySet()) {
+      writeString(out, category.getKey());
+      writeStrings(out, category.getValue());
+      writeStrings(out, rules.getCategoryStopWords().get(category.getKey()));
+
+      CompiledTree tree = rules.getTree(category.getKey());
+      writeChildren(out, tree, CompiledTree.ROOT);
+    }
+    out.flush();
+
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    out.writeLong(crc.getValue());
+    out.flush();
+
+    // write aside, then move: readers never see a half-written snapshot.
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+      bytes.writeTo(fileOut);
+    }
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Write the node children count, then each child (and its own children) depth-first.
+   */
+  private static void writeChildren(DataOutputStream out, CompiledTree tree, int node)
+      throws IOException {
+    int firstChild = tree.getFirstChild(node);
+    int childCount = tree.getChildCount(node);
+    out.writeInt(childCount);
+    for (int child = firstChild; child < firstChild + childCount; child++) {
+      Extractor extractor = tree.getExtractor(child);
+      writeString(out, extractor.getKeyName());
+      writeString(out, extractor.getExtractValue());
+      writeString(out, extractor.getMatcher());
+      writeString(out, extractor.getParentPath());
+      out.writeInt(extractor.getPriority());
+
+      writeChildren(out, tree, child);
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out, Iterable<String> strings)
+      throws IOException {
+    List<String> list = new ArrayList<>();
+    strings.forEach(list::add);
+    out.writeInt(list.size());
+    for (String string : list) {
+      writeString(out, string);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Map the snapshot file in, check it, and rebuild its rules.
+   *
+   * @param expectedSourceChecksum - checksum of the current source rules, null to skip the check.
+   * @throws StaleRulesSnapshotException if the file doesn't match the format version, the
+   *                                     source checksum or its own CRC.
+   */
+  static RuleSnapshot read(Path file, String expectedSourceChecksum) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (buffer.remaining() < Integer.BYTES * 2 + Long.BYTES || buffer.getInt() != MAGIC) {
+      throw new StaleRulesSnapshotException("Not a rules snapshot file: " + file);
+    }
+    int version = buffer.getInt();
+    if (version != FORMAT_VERSION) {
+      throw new StaleRulesSnapshotException(String.format(
+          "Rules snapshot '%s' format version %d, expected %d", file, version, FORMAT_VERSION));
+    }
+
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(0).limit(buffer.limit() - Long.BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+      throw new StaleRulesSnapshotException("Rules snapshot checksum mismatch: " + file);
+    }
+
+    String sourceChecksum = readString(buffer);
+    if (expectedSourceChecksum != null && !Objects.equals(sourceChecksum, expectedSourceChecksum)) {
+      throw new StaleRulesSnapshotException(String.format(
+          "Rules snapshot '%s' was built from other source rules", file));
+    }
+
+    Extractor rootExtractor = new Extractor(null, null, "");
+    Map<String, Set<String>> categoryKeysSet = new LinkedHashMap<>();
+    Map<String, TreeNode<Extractor>> catExtractionsTreeRoot = new LinkedHashMap<>();
+    Map<String, List<String>> categoryStopWords = new LinkedHashMap<>();
+
+    int categories = buffer.getInt();
+    for (int i = 0; i < categories; i++) {
+      String category = readString(buffer);
+      categoryKeysSet.put(category, new LinkedHashSet<>(readStrings(buffer)));
+      categoryStopWords.put(category, readStrings(buffer));
+
+      TreeNode<Extractor> root = new TreeNode<>(rootExtractor);
+      int children = buffer.getInt();
+      for (int j = 0; j < children; j++) {
+        readNode(buffer, category, root);
+      }
+      catExtractionsTreeRoot.put(category, root);
+    }
+
+    return new RuleSnapshot(categoryKeysSet, catExtractionsTreeRoot, categoryStopWords);
+  }
+
+  private static void readNode(ByteBuffer buffer, String category, TreeNode<Extractor> parent) {
+    String keyName = readString(buffer);
+    String extractValue = readString(buffer);
+    String matcher = readString(buffer);
+    String parentPath = readString(buffer);
+    int priority = buffer.getInt();
+
+    TreeNode<Extractor> node = parent.addChild(
+        new Extractor(keyName, extractValue, matcher, parentPath, priority, category));
+
+    int children = buffer.getInt();
+    for (int i = 0; i < children; i++) {
+      readNode(buffer, category, node);
+    }
+  }
+
+  private static List<String> readStrings(ByteBuffer buffer) {
+    int size = buffer.getInt();
+    List<String> strings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(readString(buffer));
+    }
+    return strings;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,65 @@
+package com.tmilar.labelsimplification.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What changed between two {@link RulesFingerprint}s: the categories changed as a whole (added,
+ * removed, with other keys or stop words, or every one on a remainder mode or regex budget
+ * change), and by category the tree nodes whose children changed.
+ */
+public class RulesDiff {
+
+  private final Set<String> changedCategories;
+  // by category: paths of the nodes whose children changed, "" for the root.
+  private final Map<String, Set<String>> changedPaths;
+
+  public RulesDiff(Set<String> changedCategories, Map<String, Set<String>> changedPaths) {
+    this.changedCategories = changedCategories;
+    this.changedPaths = changedPaths;
+  }
+
+  /**
+   * @param matchedPaths - paths of the tree nodes the label matched with the old rules, all of them
+   *                     (evaluated without early exit).
+   * @return true if the label result may differ with the new rules.
+   */
+  public boolean affects(String category, Collection<String> matchedPaths) {
+    if (changedCategories.contains(category)) {
+      return true;
+    }
+    Set<String> paths = changedPaths.get(category);
+    if (paths == null) {
+      return false;
+    }
+    if (paths.contains("")) {
+      return true; // root children are evaluated for every label.
+    }
+    for (String path : matchedPaths) {
+      if (paths.contains(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isEmpty() {
+    return changedCategories.isEmpty() && changedPaths.isEmpty();
+  }
+
+  public Set<String> getChangedCategories() {
+    return Collections.unmodifiableSet(changedCategories);
+  }
+
+  public Map<String, Set<String>> getChangedPaths() {
+    return Collections.unmodifiableMap(changedPaths);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RulesDiff{changedCategories=%s, changedNodes=%d}", changedCategories,
+        changedPaths.values().stream().mapToInt(Set::size).sum());
+  }
+}
@@ -0,0 +1,184 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fingerprint of the loaded rules, fine-grained enough to tell which labels a rules change can
+ * affect.
+ *
+ * Rules wide: the remainder mode and the regex budget settings (a budget turns the evaluations
+ * exceeding it into non matches). For each category: a hash of its keys, of its stop words, and,
+ * by tree node path, a hash of the node children (path, key, value, matcher and priority of each
+ * one, in order). A label only
+ * evaluates the children of the root and of the nodes it matched, so a label whose category keys
+ * and stop words are unchanged is only affected if the children of the root or of one of its
+ * matched nodes changed: an added, removed, modified or reordered child.
+ */
+public class RulesFingerprint {
+
+  private final String remainderMode;
+  private final String regexBudget;
+  private final Map<String, CategoryFingerprint> categories;
+
+  /**
+   * Fingerprint of one category rules.
+   */
+  public static class CategoryFingerprint {
+
+    private final List<String> keys;
+    private final long keysHash;
+    private final long stopWordsHash;
+    // by node path ("" for the root): hash of the node children.
+    private final Map<String, Long> childrenHashes;
+
+    public CategoryFingerprint(List<String> keys, long stopWordsHash,
+        Map<String, Long> childrenHashes) {
+      this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+      this.keysHash = hash(keys);
+      this.stopWordsHash = stopWordsHash;
+      this.childrenHashes = childrenHashes;
+    }
+
+    /**
+     * @return the category keys, in keys order.
+     */
+    public List<String> getKeys() {
+      return keys;
+    }
+
+    public long getStopWordsHash() {
+      return stopWordsHash;
+    }
+
+    public Map<String, Long> getChildrenHashes() {
+      return Collections.unmodifiableMap(childrenHashes);
+    }
+  }
+
+  public RulesFingerprint(String remainderMode, String regexBudget,
+      Map<String, CategoryFingerprint> categories) {
+    this.remainderMode = remainderMode;
+    this.regexBudget = regexBudget;
+    this.categories = categories;
+  }
+
+  static RulesFingerprint of(RuleSnapshot rules, RemainderMode remainderMode,
+      RegexBudget regexBudget) {
+    Map<String, CategoryFingerprint> categories = new LinkedHashMap<>();
+    rules.getCategoryKeysSet().forEach((category, keys) -> {
+      Map<String, Long> childrenHashes = new HashMap<>();
+      CompiledTree tree = rules.getTree(category);
+      for (int node = CompiledTree.ROOT; node <= tree.getNodesCount(); node++) {
+        String path = node == CompiledTree.ROOT ? "" : tree.getExtractor(node).getCurrentPath();
+        childrenHashes.put(path, childrenHash(tree, node));
+      }
+      categories.put(category, new CategoryFingerprint(new ArrayList<>(keys),
+          hash(rules.getCategoryStopWords().get(category)), childrenHashes));
+    });
+    String regexBudgetSettings = String.format("steps=%d,quarantine=%b", regexBudget.getSteps(),
+        regexBudget.isQuarantine());
+    return new RulesFingerprint(remainderMode.name(), regexBudgetSettings, categories);
+  }
+
+  private static long childrenHash(CompiledTree tree, int node) {
+    List<String> fields = new ArrayList<>();
+    int firstChild = tree.getFirstChild(node);
+    for (int child = firstChild; child < firstChild + tree.getChildCount(node); child++) {
+      Extractor extractor = tree.getExtractor(child);
+      fields.add(extractor.getCurrentPath());
+      fields.add(extractor.getKeyName());
+      fields.add(extractor.getExtractValue());
+      fields.add(extractor.getMatcher());
+      fields.add(String.valueOf(extractor.getPriority()));
+    }
+    return hash(fields);
+  }
+
+  /**
+   * @return first 64 bits of the SHA-256 of the strings (length prefixed, so the list is
+   *     unambiguous).
+   */
+  private static long hash(List<String> strings) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(strings == null ? -1 : strings.size());
+      if (strings != null) {
+        for (String string : strings) {
+          byte[] stringBytes = string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+          out.writeInt(stringBytes == null ? -1 : stringBytes.length);
+          if (stringBytes != null) {
+            out.write(stringBytes);
+          }
+        }
+      }
+      out.flush();
+      return ByteBuffer.wrap(digest.digest(bytes.toByteArray())).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public String getRemainderMode() {
+    return remainderMode;
+  }
+
+  public String getRegexBudget() {
+    return regexBudget;
+  }
+
+  public Map<String, CategoryFingerprint> getCategories() {
+    return Collections.unmodifiableMap(categories);
+  }
+
+  /**
+   * @return what changed from these rules to the newer ones.
+   */
+  public RulesDiff diff(RulesFingerprint newer) {
+    Set<String> allCategories = new HashSet<>(categories.keySet());
+    allCategories.addAll(newer.categories.keySet());
+
+    boolean settingsChanged = !Objects.equals(remainderMode, newer.remainderMode)
+        || !Objects.equals(regexBudget, newer.regexBudget);
+    Set<String> changedCategories = new HashSet<>();
+    Map<String, Set<String>> changedPaths = new HashMap<>();
+    for (String category : allCategories) {
+      CategoryFingerprint old = categories.get(category);
+      CategoryFingerprint current = newer.categories.get(category);
+      if (old == null || current == null || settingsChanged
+          || old.keysHash != current.keysHash || old.stopWordsHash != current.stopWordsHash) {
+        changedCategories.add(category);
+        continue;
+      }
+
+      Set<String> paths = new HashSet<>(old.childrenHashes.keySet());
+      paths.addAll(current.childrenHashes.keySet());
+      for (String path : paths) {
+        if (!Objects.equals(old.childrenHashes.get(path), current.childrenHashes.get(path))) {
+          changedPaths.computeIfAbsent(category, c -> new HashSet<>()).add(path);
+        }
+      }
+    }
+    return new RulesDiff(changedCategories, changedPaths);
+  }
+}
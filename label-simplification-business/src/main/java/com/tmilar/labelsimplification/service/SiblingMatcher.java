@@ -0,0 +1,261 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.util.AhoCorasick;
+import com.tmilar.labelsimplification.util.LiteralPrefilter;
+import com.tmilar.labelsimplification.util.TrigramFingerprint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiled matching engine for all the children of one extraction tree node.
+ *
+ * Children whose matcher is a plain literal alternation (ie. "SM1|Sun & Moon") are all evaluated
+ * together in one pass over the label by an {@link AhoCorasick} automaton. Only children with
+ * actual regex matchers fall back to their own compiled {@code Pattern}, evaluated one by one as
+ * they're visited, and skipped when the label lacks their required literals
+ * ({@link LiteralPrefilter}). The literal children extractions take their match spans from the
+ * automaton occurrences, picked the way their regex would find them, so the regex never runs.
+ */
+class SiblingMatcher {
+
+  private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+  private final Extractor[] children;
+  private final AhoCorasick literalsAutomaton;
+  // by automaton literal (the literal children alternatives, in children and alternatives order).
+  private final int[] literalChild;
+  private final int[] literalLengths;
+  private final int[] literalChildren;
+  private final BitSet regexChildren = new BitSet();
+  // required literals of each regex child, null for the ones that can't be prefiltered.
+  private final LiteralPrefilter[] regexPrefilters;
+  private final boolean hasPrefilters;
+  private final BitSet alwaysMatchChildren = new BitSet();
+
+  /**
+   * @param extractors - tree nodes extractors.
+   * @param first      - index of the first child.
+   * @param count      - children count. They're contiguous, starting at first.
+   */
+  SiblingMatcher(Extractor[] extractors, int first, int count) {
+    this.children = Arrays.copyOfRange(extractors, first, first + count);
+    this.regexPrefilters = new LiteralPrefilter[children.length];
+
+    List<String> literals = new ArrayList<>();
+    List<Integer> literalChildList = new ArrayList<>();
+    List<Integer> literalChildrenList = new ArrayList<>();
+
+    for (int i = 0; i < children.length; i++) {
+      Extractor extractor = children[i];
+      List<String> alternatives = Arrays.asList(extractor.getMatcher().split("\\|", -1));
+
+      if (extractor.isAnyMatch()) {
+        alwaysMatchChildren.set(i);
+      } else if (alternatives.stream().allMatch(SiblingMatcher::isLiteral)) {
+        for (String alternative : alternatives) {
+          literals.add(alternative);
+          literalChildList.add(i);
+        }
+        literalChildrenList.add(i);
+      } else {
+        regexChildren.set(i);
+        regexPrefilters[i] = LiteralPrefilter.compile(extractor.getMatcher());
+      }
+    }
+
+    this.literalChild = literalChildList.stream().mapToInt(Integer::intValue).toArray();
+    this.literalLengths = literals.stream().mapToInt(String::length).toArray();
+    int[] literalIds = new int[literals.size()];
+    Arrays.setAll(literalIds, literal -> literal);
+    this.literalsAutomaton = literals.isEmpty() ? null : new AhoCorasick(literals, literalIds);
+    this.hasPrefilters = Arrays.stream(regexPrefilters).anyMatch(Objects::nonNull);
+    this.literalChildren = literalChildrenList.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  static boolean isLiteral(String regex) {
+    for (int i = 0; i < regex.length(); i++) {
+      if (REGEX_META_CHARS.indexOf(regex.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Evaluate the literal (and always matching) children against the label, recording each
+   * evaluation into the metrics. Regex children are left for {@link #matchRegex}, so they're only
+   * evaluated if they're visited.
+   *
+   * @param metrics     - where to record the evaluations, or null to skip measuring them.
+   * @param extractions - where to write the extraction of each child (in children order, starting
+   *                    at offset), or null for the unmatched ones and the regex ones.
+   */
+  void match(String label, SimplificationMetrics metrics, Extraction[] extractions, int offset) {
+    long scanStartNanos = metrics == null ? 0 : System.nanoTime();
+    Arrays.fill(extractions, offset, offset + children.length, null);
+
+    for (int child = alwaysMatchChildren.nextSetBit(0); child >= 0;
+        child = alwaysMatchChildren.nextSetBit(child + 1)) {
+      extractions[offset + child] = children[child].extract(label);
+    }
+
+    if (literalsAutomaton != null) {
+      LiteralOccurrences occurrences = new LiteralOccurrences();
+      literalsAutomaton.scan(label, occurrences);
+      addLiteralExtractions(label, occurrences, extractions, offset);
+    }
+
+    if (metrics != null) {
+      recordLiteralChildren(extractions, offset, metrics, System.nanoTime() - scanStartNanos);
+    }
+  }
+
+  /**
+   * Automaton occurrences, each one as (literal << 32 | start): sorted, they're grouped by child,
+   * then by alternative, then by start.
+   */
+  private static final class LiteralOccurrences implements AhoCorasick.MatchListener {
+
+    private long[] occurrences = new long[16];
+    private int count;
+
+    @Override
+    public boolean onMatch(int literal, int start, int end) {
+      if (count == occurrences.length) {
+        occurrences = Arrays.copyOf(occurrences, count * 2);
+      }
+      occurrences[count++] = (long) literal << 32 | start;
+      return true;
+    }
+  }
+
+  private static int literal(long occurrence) {
+    return (int) (occurrence >>> 32);
+  }
+
+  private static int start(long occurrence) {
+    return (int) occurrence;
+  }
+
+  private void addLiteralExtractions(String label, LiteralOccurrences found,
+      Extraction[] extractions, int offset) {
+    long[] occurrences = found.occurrences;
+    Arrays.sort(occurrences, 0, found.count);
+    int from = 0;
+    while (from < found.count) {
+      int child = literalChild[literal(occurrences[from])];
+      int to = from + 1;
+      while (to < found.count && literalChild[literal(occurrences[to])] == child) {
+        to++;
+      }
+      extractions[offset + child] = children[child]
+          .matchedExtraction(label, matchSpans(occurrences, from, to));
+      from = to;
+    }
+  }
+
+  /**
+   * @return the spans the child regex would find from its occurrences (sorted, in [from, to)):
+   *     leftmost first, the first alternative on a tie, not overlapping the previous one.
+   */
+  private int[] matchSpans(long[] occurrences, int from, int to) {
+    // one run of occurrences by alternative, each one sorted by start.
+    int[] runs = new int[to - from + 1];
+    int runsCount = 0;
+    for (int i = from; i < to; i++) {
+      if (i == from || literal(occurrences[i]) != literal(occurrences[i - 1])) {
+        runs[runsCount++] = i;
+      }
+    }
+    runs[runsCount] = to;
+    int[] next = Arrays.copyOf(runs, runsCount);
+
+    int[] spans = new int[2 * (to - from)];
+    int spansCount = 0;
+    int position = 0;
+    while (true) {
+      int best = -1;
+      int bestStart = Integer.MAX_VALUE;
+      for (int run = 0; run < runsCount; run++) {
+        while (next[run] < runs[run + 1] && start(occurrences[next[run]]) < position) {
+          next[run]++;
+        }
+        if (next[run] < runs[run + 1] && start(occurrences[next[run]]) < bestStart) {
+          best = run;
+          bestStart = start(occurrences[next[run]]);
+        }
+      }
+      if (best < 0) {
+        break;
+      }
+      position = bestStart + literalLengths[literal(occurrences[next[best]])];
+      spans[spansCount++] = bestStart;
+      spans[spansCount++] = position;
+    }
+    return Arrays.copyOf(spans, spansCount);
+  }
+
+  boolean isRegex(int child) {
+    return regexChildren.get(child);
+  }
+
+  boolean hasRegexes() {
+    return !regexChildren.isEmpty();
+  }
+
+  /**
+   * @return true if some regex child can be skipped by its required literals.
+   */
+  boolean hasPrefilters() {
+    return hasPrefilters;
+  }
+
+  /**
+   * Evaluate one regex child against the label, within the regex budget. Children whose required
+   * literals are not in the label fingerprint are not run.
+   *
+   * @param foldedLabel - the label case folded, or null to fold it if needed.
+   * @param fingerprint - label fingerprint, or null if there are no prefilters in the tree.
+   * @param metrics     - where to record the evaluation, or null to skip measuring it.
+   * @return the child extraction, or null if it didn't match.
+   */
+  Extraction matchRegex(int child, String label, String foldedLabel,
+      TrigramFingerprint fingerprint, SimplificationMetrics metrics, RegexBudget regexBudget) {
+    if (metrics == null) {
+      return extractRegex(child, label, foldedLabel, fingerprint, regexBudget);
+    }
+    long startNanos = System.nanoTime();
+    Extraction extraction = extractRegex(child, label, foldedLabel, fingerprint, regexBudget);
+    metrics.recordExtractor(children[child], extraction != null, System.nanoTime() - startNanos);
+    return extraction;
+  }
+
+  private Extraction extractRegex(int child, String label, String foldedLabel,
+      TrigramFingerprint fingerprint, RegexBudget regexBudget) {
+    LiteralPrefilter prefilter = regexPrefilters[child];
+    if (prefilter != null && fingerprint != null && !prefilter.mayMatch(fingerprint)) {
+      return null;
+    }
+    return regexBudget.extract(children[child], label, foldedLabel);
+  }
+
+  private void recordLiteralChildren(Extraction[] extractions, int offset,
+      SimplificationMetrics metrics, long scanNanos) {
+    for (int child = alwaysMatchChildren.nextSetBit(0); child >= 0;
+        child = alwaysMatchChildren.nextSetBit(child + 1)) {
+      metrics.recordExtractor(children[child], true, 0);
+    }
+    if (literalChildren.length == 0) {
+      return;
+    }
+    long childNanos = scanNanos / literalChildren.length;
+    for (int child : literalChildren) {
+      metrics.recordExtractor(children[child], extractions[offset + child] != null, childNanos);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, concurrent LRU cache of simplified labels, keyed by (category, label text).
+ *
+ * Entries are spread over independently locked LRU segments. Each entry remembers the rules
+ * snapshot it was computed with, and is only a hit for that same snapshot: results computed with
+ * old rules are never returned once new rules are loaded.
+ */
+class SimplificationCache {
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  SimplificationCache(long maximumSize) {
+    int segmentSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maximumSize / SEGMENTS));
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  private static final class Key {
+
+    private final String category;
+    private final String label;
+    private final int hash;
+
+    private Key(String category, String label) {
+      this.category = category;
+      this.label = label;
+      this.hash = 31 * Objects.hashCode(category) + Objects.hashCode(label);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash
+          && Objects.equals(label, key.label)
+          && Objects.equals(category, key.category);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class CacheEntry {
+
+    private final RuleSnapshot rules;
+    private final SimplifiedLabel simplifiedLabel;
+
+    private CacheEntry(RuleSnapshot rules, SimplifiedLabel simplifiedLabel) {
+      this.rules = rules;
+      this.simplifiedLabel = simplifiedLabel;
+    }
+  }
+
+  private final class Segment extends LinkedHashMap<Key, CacheEntry> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maximumSize;
+
+    private Segment(int maximumSize) {
+      super(16, 0.75f, true);
+      this.maximumSize = maximumSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+      if (size() > maximumSize) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private Segment segmentFor(Key key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * @return a copy of the cached result for the label, or null if there's none for these rules.
+   */
+  SimplifiedLabel get(RuleSnapshot rules, String category, String label) {
+    Key key = new Key(category, label);
+    Segment segment = segmentFor(key);
+    CacheEntry entry;
+    synchronized (segment) {
+      entry = segment.get(key);
+    }
+    if (entry == null || entry.rules != rules) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return new SimplifiedLabel(entry.simplifiedLabel);
+  }
+
+  /**
+   * Cache a copy of the result, so later changes by the caller don't affect the cached one.
+   */
+  void put(RuleSnapshot rules, String category, String label, SimplifiedLabel simplifiedLabel) {
+    Key key = new Key(category, label);
+    CacheEntry entry = new CacheEntry(rules, new SimplifiedLabel(simplifiedLabel));
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      segment.put(key, entry);
+    }
+  }
+
+  void invalidateAll() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size());
+  }
+}
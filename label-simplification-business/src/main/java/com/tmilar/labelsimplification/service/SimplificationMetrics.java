@@ -0,0 +1,34 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+
+/**
+ * Receives the measurements of the simplification hot path, once enabled with
+ * {@link LabelSimplificationService#setMetrics(SimplificationMetrics)}. When disabled (the default)
+ * nothing is measured at all.
+ *
+ * Implementations are called concurrently from every simplifying thread, so they must be
+ * thread-safe, and cheap.
+ */
+public interface SimplificationMetrics {
+
+  /**
+   * An extractor was evaluated against a label.
+   *
+   * Literal extractors of the same parent node are evaluated together in one pass over the label,
+   * so each of them is recorded with an even share of that pass time.
+   *
+   * @param extractor - evaluated extractor.
+   * @param matched   - whether it matched the label.
+   * @param nanos     - evaluation time.
+   */
+  void recordExtractor(Extractor extractor, boolean matched, long nanos);
+
+  /**
+   * A label was simplified (or retrieved from the cache).
+   *
+   * @param category - label category.
+   * @param nanos    - total simplification time.
+   */
+  void recordLabel(String category, long nanos);
+}
@@ -0,0 +1,135 @@
+package com.tmilar.labelsimplification.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a simplified labels corpus, with the fingerprint of the rules they were simplified
+ * with. Each result keeps the simplified label, the category keys values, and the paths of the
+ * tree nodes the label matched (so which ones it evaluated: the root children and the matched
+ * nodes children), to tell if a rules change affects it. See {@link IncrementalSimplifier}.
+ *
+ * Paths are stored once per category, and referenced by index from the results.
+ */
+public class SimplificationState {
+
+  private final RulesFingerprint fingerprint;
+  private final Map<String, CategoryResults> categoryResults = new HashMap<>();
+  private int size;
+
+  static final class StoredResult {
+
+    final String simplifiedLabel;
+    // by category key, in the fingerprint keys order.
+    final String[] values;
+    final int[] matchedPaths;
+
+    StoredResult(String simplifiedLabel, String[] values, int[] matchedPaths) {
+      this.simplifiedLabel = simplifiedLabel;
+      this.values = values;
+      this.matchedPaths = matchedPaths;
+    }
+  }
+
+  static final class CategoryResults {
+
+    final List<String> paths = new ArrayList<>();
+    final Map<String, Integer> pathIndexes = new HashMap<>();
+    // by label.
+    final Map<String, StoredResult> results = new HashMap<>();
+
+    int pathIndex(String path) {
+      Integer index = pathIndexes.get(path);
+      if (index == null) {
+        index = paths.size();
+        paths.add(path);
+        pathIndexes.put(path, index);
+      }
+      return index;
+    }
+  }
+
+  public SimplificationState(RulesFingerprint fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Read a state file, written by {@link #write(Path)}.
+   *
+   * @throws IOException if it can't be read, or isn't a state file of the current format.
+   */
+  public static SimplificationState read(Path file) throws IOException {
+    return SimplificationStateCodec.read(file);
+  }
+
+  public void write(Path file) throws IOException {
+    SimplificationStateCodec.write(this, file);
+  }
+
+  public RulesFingerprint getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @return the results count.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  synchronized void put(String category, String label, String simplifiedLabel, String[] values,
+      List<String> matchedPaths) {
+    CategoryResults results = categoryResults(category);
+    int[] pathIndexes = new int[matchedPaths.size()];
+    for (int i = 0; i < pathIndexes.length; i++) {
+      pathIndexes[i] = results.pathIndex(matchedPaths.get(i));
+    }
+    if (results.results.put(label, new StoredResult(simplifiedLabel, values, pathIndexes))
+        == null) {
+      size++;
+    }
+  }
+
+  /**
+   * @return the label result, or null if it's not stored.
+   */
+  synchronized StoredResult get(String category, String label) {
+    CategoryResults results = categoryResults.get(category);
+    return results == null ? null : results.results.get(label);
+  }
+
+  /**
+   * @return the result matched paths, as strings.
+   */
+  synchronized List<String> getMatchedPaths(String category, StoredResult result) {
+    List<String> paths = categoryResults.get(category).paths;
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        return paths.get(result.matchedPaths[index]);
+      }
+
+      @Override
+      public int size() {
+        return result.matchedPaths.length;
+      }
+    };
+  }
+
+  CategoryResults categoryResults(String category) {
+    return categoryResults.computeIfAbsent(category, c -> new CategoryResults());
+  }
+
+  Map<String, CategoryResults> getCategoryResults() {
+    return categoryResults;
+  }
+
+  void setSize(int size) {
+    this.size = size;
+  }
+}
@@ -0,0 +1,179 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.service.RulesFingerprint.CategoryFingerprint;
+import com.tmilar.labelsimplification.service.SimplificationState.CategoryResults;
+import com.tmilar.labelsimplification.service.SimplificationState.StoredResult;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file format of a {@link SimplificationState}, streamed (a state holds a whole corpus).
+ *
+ * Layout (big-endian): magic, format version, the rules fingerprint (remainder mode, regex budget
+ * settings, then each category keys, stop words hash and node children hashes), then by category
+ * its matched paths table and its results.
+ */
+class SimplificationStateCodec {
+
+  private static final int MAGIC = 0x4C535354; // "LSST"
+  static final int FORMAT_VERSION = 2;
+
+  private SimplificationStateCodec() {
+  }
+
+  static void write(SimplificationState state, Path file) throws IOException {
+    // write aside, then move: a failed run never leaves a half-written state.
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+
+      RulesFingerprint fingerprint = state.getFingerprint();
+      writeString(out, fingerprint.getRemainderMode());
+      writeString(out, fingerprint.getRegexBudget());
+      out.writeInt(fingerprint.getCategories().size());
+      for (Map.Entry<String, CategoryFingerprint> category
+          : fingerprint.getCategories().entrySet()) {
+        writeString(out, category.getKey());
+        writeStrings(out, category.getValue().getKeys());
+        out.writeLong(category.getValue().getStopWordsHash());
+        Map<String, Long> childrenHashes = category.getValue().getChildrenHashes();
+        out.writeInt(childrenHashes.size());
+        for (Map.Entry<String, Long> node : childrenHashes.entrySet()) {
+          writeString(out, node.getKey());
+          out.writeLong(node.getValue());
+        }
+      }
+
+      synchronized (state) {
+        Map<String, CategoryResults> categoryResults = state.getCategoryResults();
+        out.writeInt(categoryResults.size());
+        for (Map.Entry<String, CategoryResults> category : categoryResults.entrySet()) {
+          writeString(out, category.getKey());
+          writeStrings(out, category.getValue().paths);
+          Map<String, StoredResult> results = category.getValue().results;
+          out.writeInt(results.size());
+          for (Map.Entry<String, StoredResult> result : results.entrySet()) {
+            writeString(out, result.getKey());
+            writeString(out, result.getValue().simplifiedLabel);
+            writeStrings(out, Arrays.asList(result.getValue().values));
+            int[] matchedPaths = result.getValue().matchedPaths;
+            out.writeInt(matchedPaths.length);
+            for (int path : matchedPaths) {
+              out.writeInt(path);
+            }
+          }
+        }
+      }
+    }
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  static SimplificationState read(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(String.format("'%s' is not a simplification state file", file));
+      }
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException(String.format(
+            "Simplification state '%s' format version %d, expected %d", file, version,
+            FORMAT_VERSION));
+      }
+
+      String remainderMode = readString(in);
+      String regexBudget = readString(in);
+      int categoriesCount = in.readInt();
+      Map<String, CategoryFingerprint> categories = new LinkedHashMap<>();
+      for (int i = 0; i < categoriesCount; i++) {
+        String category = readString(in);
+        List<String> keys = readStrings(in);
+        long stopWordsHash = in.readLong();
+        int nodesCount = in.readInt();
+        Map<String, Long> childrenHashes = new HashMap<>(nodesCount * 2);
+        for (int node = 0; node < nodesCount; node++) {
+          childrenHashes.put(readString(in), in.readLong());
+        }
+        categories.put(category, new CategoryFingerprint(keys, stopWordsHash, childrenHashes));
+      }
+      SimplificationState state = new SimplificationState(
+          new RulesFingerprint(remainderMode, regexBudget, categories));
+
+      int size = 0;
+      int resultCategoriesCount = in.readInt();
+      for (int i = 0; i < resultCategoriesCount; i++) {
+        CategoryResults categoryResults = state.categoryResults(readString(in));
+        for (String path : readStrings(in)) {
+          categoryResults.pathIndex(path);
+        }
+        int resultsCount = in.readInt();
+        for (int r = 0; r < resultsCount; r++) {
+          String label = readString(in);
+          String simplifiedLabel = readString(in);
+          String[] values = readStrings(in).toArray(new String[0]);
+          int[] matchedPaths = new int[in.readInt()];
+          for (int p = 0; p < matchedPaths.length; p++) {
+            matchedPaths[p] = in.readInt();
+          }
+          categoryResults.results.put(label,
+              new StoredResult(simplifiedLabel, values, matchedPaths));
+        }
+        size += resultsCount;
+      }
+      state.setSize(size);
+      return state;
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
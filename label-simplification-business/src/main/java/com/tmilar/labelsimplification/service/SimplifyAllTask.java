@@ -0,0 +1,59 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+
+/**
+ * Fork/join task simplifying a slice of the labels of one category.
+ * Splits in halves until the slice fits in one chunk, then simplifies it sequentially.
+ *
+ * Each result is written to its own (input order) slot of the shared results array, so tasks
+ * never contend on any shared mutable state.
+ */
+class SimplifyAllTask extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+
+  private final RuleSnapshot rules;
+  private final BiFunction<RuleSnapshot, Label, SimplifiedLabel> simplifier;
+  private final List<? extends Label> labels;
+  private final int[] labelIndexes;
+  private final int from;
+  private final int to;
+  private final int chunkSize;
+  private final SimplifiedLabel[] results;
+
+  SimplifyAllTask(RuleSnapshot rules, BiFunction<RuleSnapshot, Label, SimplifiedLabel> simplifier,
+      List<? extends Label> labels, int[] labelIndexes, int from, int to, int chunkSize,
+      SimplifiedLabel[] results) {
+    this.rules = rules;
+    this.simplifier = simplifier;
+    this.labels = labels;
+    this.labelIndexes = labelIndexes;
+    this.from = from;
+    this.to = to;
+    this.chunkSize = chunkSize;
+    this.results = results;
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= chunkSize) {
+      for (int i = from; i < to; i++) {
+        int labelIndex = labelIndexes[i];
+        results[labelIndex] = simplifier.apply(rules, labels.get(labelIndex));
+      }
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    invokeAll(
+        new SimplifyAllTask(rules, simplifier, labels, labelIndexes, from, middle, chunkSize,
+            results),
+        new SimplifyAllTask(rules, simplifier, labels, labelIndexes, middle, to, chunkSize,
+            results));
+  }
+}
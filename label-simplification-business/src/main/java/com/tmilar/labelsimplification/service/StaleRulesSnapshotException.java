@@ -0,0 +1,16 @@
+package com.tmilar.labelsimplification.service;
+
+import java.io.IOException;
+
+/**
+ * The rules snapshot file can't be used: it was written by another format version, from other
+ * source rules, or it's corrupted. It should be rebuilt from the source rules.
+ */
+public class StaleRulesSnapshotException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public StaleRulesSnapshotException(String message) {
+    super(message);
+  }
+}
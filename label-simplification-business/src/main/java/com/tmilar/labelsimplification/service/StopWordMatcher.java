@@ -0,0 +1,117 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.util.AhoCorasick;
+import com.tmilar.labelsimplification.util.CaseFolding;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled stop words of one category.
+ *
+ * Removing the stop words must give the exact same result as applying
+ * {@code replaceAll("(?i)" + word, "")} for each word, in order. Every pattern is compiled once,
+ * and one {@link AhoCorasick} pass over the text tells which of the literal stop words are present
+ * at all, so only those (plus the few actual regex stop words) are applied.
+ *
+ * Patterns are compiled case-sensitive over the case folded text when they can be
+ * ({@link CaseFolding}); the matched regions are removed from both the text and its folded copy.
+ */
+class StopWordMatcher {
+
+  private final Pattern[] patterns;
+  // by pattern: true if it runs on the folded text.
+  private final boolean[] foldedPatterns;
+  private final BitSet regexWords = new BitSet();
+  private final AhoCorasick literalsAutomaton;
+
+  StopWordMatcher(List<String> stopwords) {
+    List<Pattern> compiled = new ArrayList<>();
+    BitSet folded = new BitSet();
+    List<String> literals = new ArrayList<>();
+    List<Integer> literalIndexes = new ArrayList<>();
+
+    for (String word : stopwords) {
+      if (word == null || word.isEmpty()) {
+        continue; // empty word never removes anything
+      }
+      int index = compiled.size();
+      String foldedWord = CaseFolding.foldPattern(word);
+      if (foldedWord != null) {
+        compiled.add(Pattern.compile(foldedWord));
+        folded.set(index);
+      } else {
+        compiled.add(Pattern.compile("(?i)" + word));
+      }
+
+      if (SiblingMatcher.isLiteral(word)) {
+        literals.add(word);
+        literalIndexes.add(index);
+      } else {
+        regexWords.set(index);
+      }
+    }
+
+    this.patterns = compiled.toArray(new Pattern[0]);
+    this.foldedPatterns = new boolean[patterns.length];
+    for (int i = folded.nextSetBit(0); i >= 0; i = folded.nextSetBit(i + 1)) {
+      foldedPatterns[i] = true;
+    }
+    this.literalsAutomaton = literals.isEmpty() ? null
+        : new AhoCorasick(literals, literalIndexes.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * @return the text without any of the stop words.
+   */
+  String removeStopWords(String text) {
+    if (patterns.length == 0) {
+      return text;
+    }
+
+    String foldedText = CaseFolding.fold(text);
+    BitSet candidates = findCandidates(foldedText);
+
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      Matcher matcher = patterns[i].matcher(foldedPatterns[i] ? foldedText : text);
+      StringBuilder remaining = null;
+      StringBuilder foldedRemaining = null;
+      int uncoveredStart = 0;
+      while (matcher.find()) {
+        if (matcher.start() == matcher.end()) {
+          continue; // empty matches remove nothing
+        }
+        if (remaining == null) {
+          remaining = new StringBuilder(text.length());
+          foldedRemaining = new StringBuilder(text.length());
+        }
+        remaining.append(text, uncoveredStart, matcher.start());
+        foldedRemaining.append(foldedText, uncoveredStart, matcher.start());
+        uncoveredStart = matcher.end();
+      }
+
+      if (remaining != null) {
+        // removal may have joined a new occurrence of a later stop word -> search again.
+        text = remaining.append(text, uncoveredStart, text.length()).toString();
+        foldedText = foldedRemaining.append(foldedText, uncoveredStart, foldedText.length())
+            .toString();
+        candidates = findCandidates(foldedText);
+      }
+    }
+
+    return text;
+  }
+
+  private BitSet findCandidates(String text) {
+    BitSet candidates = (BitSet) regexWords.clone();
+    if (literalsAutomaton != null) {
+      literalsAutomaton.scan(text, (word, start, end) -> {
+        candidates.set(word);
+        return true;
+      });
+    }
+    return candidates;
+  }
+}
@@ -0,0 +1,198 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick multi-literal automaton.
+ * Finds every occurrence of every registered literal in a single left-to-right pass over the text.
+ *
+ * Matching is US-ASCII case-insensitive (same semantics as {@code Pattern.CASE_INSENSITIVE}
+ * without {@code UNICODE_CASE}): ascii letters are folded, any other char is compared as-is.
+ */
+public class AhoCorasick {
+
+  private static final int ASCII = 128;
+  private static final int[] NO_OUTPUT = new int[0];
+
+  // dense, failure-resolved transitions for ascii chars: asciiNext[state * ASCII + c]
+  private final int[] asciiNext;
+  // sparse trie transitions for non-ascii chars (not failure-resolved)
+  private final List<Map<Character, Integer>> otherNext;
+  private final int[] fail;
+  // pattern ids ending at each state, including the ones inherited through failure links
+  private final int[][] output;
+  private final int[] patternLengths;
+  private final int[] patternIds;
+
+  /**
+   * Callback for each literal occurrence found.
+   */
+  public interface MatchListener {
+
+    /**
+     * @param patternId - id the literal was registered with.
+     * @param start     - occurrence start offset (inclusive).
+     * @param end       - occurrence end offset (exclusive).
+     * @return true to continue scanning, false to stop.
+     */
+    boolean onMatch(int patternId, int start, int end);
+  }
+
+  /**
+   * Build the automaton.
+   *
+   * @param literals   - literals to find. Empty literals are ignored.
+   * @param patternIds - id reported for each literal (same index). Ids may repeat.
+   */
+  @SuppressWarnings("unchecked")
+  public AhoCorasick(List<String> literals, int[] patternIds) {
+    if (literals.size() != patternIds.length) {
+      throw new IllegalArgumentException("literals and patternIds sizes differ");
+    }
+    this.patternIds = patternIds.clone();
+    this.patternLengths = new int[literals.size()];
+
+    // 1. build the trie.
+    List<int[]> trieAscii = new ArrayList<>();
+    List<Map<Character, Integer>> trieOther = new ArrayList<>();
+    List<List<Integer>> trieOutput = new ArrayList<>();
+    newState(trieAscii, trieOther, trieOutput);
+
+    for (int i = 0; i < literals.size(); i++) {
+      String literal = literals.get(i);
+      patternLengths[i] = literal.length();
+      if (literal.isEmpty()) {
+        continue;
+      }
+      int state = 0;
+      for (int j = 0; j < literal.length(); j++) {
+        char c = fold(literal.charAt(j));
+        int next = c < ASCII ? trieAscii.get(state)[c] : trieOther.get(state).getOrDefault(c, -1);
+        if (next < 0) {
+          next = newState(trieAscii, trieOther, trieOutput);
+          if (c < ASCII) {
+            trieAscii.get(state)[c] = next;
+          } else {
+            trieOther.get(state).put(c, next);
+          }
+        }
+        state = next;
+      }
+      trieOutput.get(state).add(i);
+    }
+
+    int states = trieAscii.size();
+    this.asciiNext = new int[states * ASCII];
+    this.otherNext = trieOther;
+    this.fail = new int[states];
+    this.output = new int[states][];
+
+    // 2. breadth-first: compute failure links, resolve ascii transitions, merge outputs.
+    Queue<Integer> queue = new LinkedList<>();
+    for (int c = 0; c < ASCII; c++) {
+      int next = trieAscii.get(0)[c];
+      asciiNext[c] = next < 0 ? 0 : next;
+      if (next > 0) {
+        queue.add(next);
+      }
+    }
+    otherNext.get(0).values().forEach(queue::add);
+    output[0] = NO_OUTPUT;
+
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      int[] stateAscii = trieAscii.get(state);
+      for (int c = 0; c < ASCII; c++) {
+        int next = stateAscii[c];
+        if (next < 0) {
+          asciiNext[state * ASCII + c] = asciiNext[fail[state] * ASCII + c];
+        } else {
+          asciiNext[state * ASCII + c] = next;
+          fail[next] = asciiNext[fail[state] * ASCII + c];
+          queue.add(next);
+        }
+      }
+      for (Map.Entry<Character, Integer> entry : otherNext.get(state).entrySet()) {
+        int next = entry.getValue();
+        fail[next] = step(fail[state], entry.getKey());
+        queue.add(next);
+      }
+      output[state] = mergeOutput(trieOutput.get(state), output[fail[state]]);
+    }
+  }
+
+  private static int newState(List<int[]> trieAscii, List<Map<Character, Integer>> trieOther,
+      List<List<Integer>> trieOutput) {
+    int[] next = new int[ASCII];
+    Arrays.fill(next, -1);
+    trieAscii.add(next);
+    trieOther.add(new HashMap<>());
+    trieOutput.add(new ArrayList<>());
+    return trieAscii.size() - 1;
+  }
+
+  private static int[] mergeOutput(List<Integer> own, int[] inherited) {
+    if (own.isEmpty()) {
+      return inherited;
+    }
+    int[] merged = new int[own.size() + inherited.length];
+    for (int i = 0; i < own.size(); i++) {
+      merged[i] = own.get(i);
+    }
+    System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+    return merged;
+  }
+
+  private int step(int state, char c) {
+    if (c < ASCII) {
+      return asciiNext[state * ASCII + c];
+    }
+    while (true) {
+      Integer next = otherNext.get(state).get(c);
+      if (next != null) {
+        return next;
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = fail[state];
+    }
+  }
+
+  static char fold(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  /**
+   * Scan the text, reporting every (possibly overlapping) literal occurrence, by end offset.
+   *
+   * @return false if the listener stopped the scan, true otherwise.
+   */
+  public boolean scan(CharSequence text, MatchListener listener) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = step(state, fold(text.charAt(i)));
+      int[] found = output[state];
+      for (int literal : found) {
+        int end = i + 1;
+        if (!listener.onMatch(patternIds[literal], end - patternLengths[literal], end)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if any registered literal occurs in the text.
+   */
+  public boolean containsAny(CharSequence text) {
+    return !scan(text, (patternId, start, end) -> false);
+  }
+}
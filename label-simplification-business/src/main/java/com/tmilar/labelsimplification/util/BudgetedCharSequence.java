@@ -0,0 +1,57 @@
+package com.tmilar.labelsimplification.util;
+
+/**
+ * Read-only view of a string that allows a limited number of character reads, to bound the work
+ * of a regex running over it. {@code java.util.regex} reads its input one {@link #charAt(int)} at
+ * a time, so the reads count backtracking steps as well: once they run out, the next read throws
+ * {@link BudgetExceededException}, aborting the match.
+ */
+public class BudgetedCharSequence implements CharSequence {
+
+  private final String text;
+  private long remainingSteps;
+
+  /**
+   * @param steps - max characters read, over all the matches run on this sequence.
+   */
+  public BudgetedCharSequence(String text, long steps) {
+    this.text = text;
+    this.remainingSteps = steps;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (--remainingSteps < 0) {
+      throw new BudgetExceededException();
+    }
+    return text.charAt(index);
+  }
+
+  @Override
+  public int length() {
+    return text.length();
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    // used to return the matched groups, not to match.
+    return text.substring(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  /**
+   * The sequence reads budget ran out. Thrown on the matching hot path, so without stack trace.
+   */
+  public static class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    BudgetExceededException() {
+      super("Character reads budget exceeded", null, false, false);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.tmilar.labelsimplification.util;
+
+/**
+ * US-ASCII case folding of texts and regexes, so a {@code Pattern.CASE_INSENSITIVE} regex can run
+ * case-sensitively (ie. with literal prefix search, and without folding every char compared) over
+ * a text folded once.
+ *
+ * {@code CASE_INSENSITIVE} without {@code UNICODE_CASE} only folds ASCII letters, and compares any
+ * other char as-is: so does this folding. It keeps the text length, so match offsets in the folded
+ * text are offsets in the original one.
+ */
+public class CaseFolding {
+
+  // escapes whose meaning depends on the case of their argument, or that can't be folded safely.
+  private static final String UNSUPPORTED_ESCAPES = "0xucpPNkQE";
+
+  private CaseFolding() {
+  }
+
+  /**
+   * @return the text with its ASCII letters lower-cased. The same instance if there are none.
+   */
+  public static String fold(String text) {
+    int i = 0;
+    while (i < text.length() && !isUpperAscii(text.charAt(i))) {
+      i++;
+    }
+    if (i == text.length()) {
+      return text;
+    }
+
+    char[] folded = text.toCharArray();
+    for (; i < folded.length; i++) {
+      folded[i] = fold(folded[i]);
+    }
+    return new String(folded);
+  }
+
+  public static char fold(char c) {
+    return isUpperAscii(c) ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static boolean isUpperAscii(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isLowerAscii(char c) {
+    return c >= 'a' && c <= 'z';
+  }
+
+  /**
+   * Fold a regex, so that matching it case-sensitively against folded texts finds the same
+   * matches as matching the original one with {@code CASE_INSENSITIVE} against the original texts.
+   *
+   * @return the folded regex, or null if it uses constructs that can't be folded (inline flags,
+   *     quoting, char codes, unicode properties, nested classes, ranges across letters).
+   */
+  public static String foldPattern(String regex) {
+    StringBuilder folded = new StringBuilder(regex.length());
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= regex.length() || UNSUPPORTED_ESCAPES.indexOf(regex.charAt(i + 1)) >= 0) {
+          return null;
+        }
+        // escapes are kept as-is: ie. \W is not \w.
+        folded.append(c).append(regex.charAt(i + 1));
+        i += 2;
+      } else if (c == '[') {
+        i = foldCharacterClass(regex, i, folded);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '(' && i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+        return null;
+      } else {
+        folded.append(fold(c));
+        i++;
+      }
+    }
+    return folded.toString();
+  }
+
+  /**
+   * @return the index after the character class starting at start, or -1 if it can't be folded.
+   */
+  private static int foldCharacterClass(String regex, int start, StringBuilder folded) {
+    int i = start + 1;
+    folded.append('[');
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      folded.append('^');
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      folded.append(']');
+      i++;
+    }
+
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == ']') {
+        folded.append(']');
+        return i + 1;
+      }
+      if (c == '[' || (c == '&' && i + 1 < regex.length() && regex.charAt(i + 1) == '&')) {
+        return -1;
+      }
+      if (c == '\\') {
+        if (i + 1 >= regex.length() || UNSUPPORTED_ESCAPES.indexOf(regex.charAt(i + 1)) >= 0) {
+          return -1;
+        }
+        folded.append(c).append(regex.charAt(i + 1));
+        i += 2;
+        continue;
+      }
+
+      boolean range = i + 2 < regex.length() && regex.charAt(i + 1) == '-'
+          && regex.charAt(i + 2) != ']';
+      if (!range) {
+        folded.append(fold(c));
+        i++;
+        continue;
+      }
+      char end = regex.charAt(i + 2);
+      if (end == '\\' || end == '[' || !isFoldableRange(c, end)) {
+        return -1;
+      }
+      folded.append(fold(c)).append('-').append(fold(end));
+      i += 3;
+    }
+    return -1;
+  }
+
+  /**
+   * Case-insensitive ranges match both cases of their letters: the folded range must have the
+   * same letters, and no other ones.
+   */
+  private static boolean isFoldableRange(char start, char end) {
+    if ((isUpperAscii(start) && isUpperAscii(end)) || (isLowerAscii(start) && isLowerAscii(end))) {
+      return true;
+    }
+    // no letters in between: ie. 0-9.
+    return end < 'A' || start > 'z' || (start > 'Z' && end < 'a');
+  }
+}
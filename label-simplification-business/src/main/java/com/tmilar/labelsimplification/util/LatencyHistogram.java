@@ -0,0 +1,118 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of nanosecond latencies, in power of two buckets: bucket i counts the
+ * values in [2^(i-1), 2^i) (bucket 0 counts the zeros). Percentiles are approximated by the upper
+ * bound of their bucket, so they're at most 2x off, which is enough to spot the slow paths.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets.incrementAndGet(bucket(nanos));
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  private static int bucket(long nanos) {
+    return BUCKETS - Long.numberOfLeadingZeros(nanos);
+  }
+
+  /**
+   * @return point-in-time copy of the histogram. Concurrent records may be partially included.
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new Snapshot(counts, count.sum(), totalNanos.sum(), maxNanos.get());
+  }
+
+  /**
+   * Immutable copy of a histogram.
+   */
+  public static class Snapshot {
+
+    public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0, 0);
+
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return a snapshot adding up the values of both.
+     */
+    public Snapshot merge(Snapshot other) {
+      long[] merged = counts.clone();
+      for (int i = 0; i < BUCKETS; i++) {
+        merged[i] += other.counts[i];
+      }
+      return new Snapshot(merged, count + other.count, totalNanos + other.totalNanos,
+          Math.max(maxNanos, other.maxNanos));
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public double getMeanNanos() {
+      return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * @param percentile - between 0 and 100.
+     * @return approximate value (bucket upper bound) of the percentile.
+     */
+    public long getPercentileNanos(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(maxNanos, i == 0 ? 0 : (1L << i) - 1);
+        }
+      }
+      return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns", count,
+          getMeanNanos(), getPercentileNanos(50), getPercentileNanos(99), maxNanos);
+    }
+  }
+}
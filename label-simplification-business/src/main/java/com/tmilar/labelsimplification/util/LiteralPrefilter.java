@@ -0,0 +1,260 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Required literals of a regex, to skip running it on texts that can't match (RE2 prefilter
+ * style): one literal per top level alternative, which every match of that alternative contains.
+ * A text without any of them can't match the regex.
+ *
+ * Only simple regexes are analyzed: top level alternatives of literal chars, escapes, classes,
+ * groups and quantifiers. The longest run of literal chars not under any quantifier, outside of
+ * groups, is the alternative required literal. Regexes with inline flags or special constructs
+ * ({@code (?}, {@code \Q}, {@code \x}, ...), or with an alternative without a literal of at least
+ * 3 chars, can't be prefiltered.
+ */
+public class LiteralPrefilter {
+
+  private static final int MIN_LITERAL_LENGTH = 3;
+  // escapes taking arguments (or backreferences): their arguments don't read as literal chars.
+  private static final String UNSUPPORTED_ESCAPES = "0123456789xucpPkNQEg";
+  private static final String QUANTIFIER_CHARS = "?*+{";
+
+  private final List<String> literals;
+  private final int[][] literalTrigrams;
+
+  private LiteralPrefilter(List<String> literals) {
+    this.literals = literals;
+    this.literalTrigrams = new int[literals.size()][];
+    for (int i = 0; i < literals.size(); i++) {
+      literalTrigrams[i] = TrigramFingerprint.trigramHashes(literals.get(i));
+    }
+  }
+
+  /**
+   * @return the prefilter of the regex (matched case-insensitively), or null if it can't be
+   *     prefiltered.
+   */
+  public static LiteralPrefilter compile(String regex) {
+    List<String> alternatives = splitAlternatives(regex);
+    if (alternatives == null) {
+      return null;
+    }
+    List<String> literals = new ArrayList<>();
+    for (String alternative : alternatives) {
+      String literal = requiredLiteral(alternative);
+      if (literal == null || literal.length() < MIN_LITERAL_LENGTH) {
+        return null;
+      }
+      literals.add(literal);
+    }
+    return new LiteralPrefilter(literals);
+  }
+
+  /**
+   * @return the required literal of each alternative.
+   */
+  public List<String> getLiterals() {
+    return literals;
+  }
+
+  /**
+   * @return false if the fingerprint text certainly doesn't match the regex.
+   */
+  public boolean mayMatch(TrigramFingerprint fingerprint) {
+    for (int[] trigrams : literalTrigrams) {
+      if (fingerprint.mayContain(trigrams)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the top level alternatives, or null if the regex can't be analyzed.
+   */
+  private static List<String> splitAlternatives(String regex) {
+    List<String> alternatives = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= regex.length() || UNSUPPORTED_ESCAPES.indexOf(regex.charAt(i + 1)) >= 0) {
+          return null;
+        }
+        i += 2;
+      } else if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '(') {
+        if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+          return null;
+        }
+        depth++;
+        i++;
+      } else if (c == ')') {
+        if (--depth < 0) {
+          return null;
+        }
+        i++;
+      } else {
+        if (c == '|' && depth == 0) {
+          alternatives.add(regex.substring(start, i));
+          start = i + 1;
+        }
+        i++;
+      }
+    }
+    if (depth != 0) {
+      return null;
+    }
+    alternatives.add(regex.substring(start));
+    return alternatives;
+  }
+
+  /**
+   * @return the longest literal run of the alternative, or null if it can't be analyzed.
+   */
+  private static String requiredLiteral(String alternative) {
+    StringBuilder run = new StringBuilder();
+    String longest = "";
+    int i = 0;
+    while (i < alternative.length()) {
+      char c = alternative.charAt(i);
+      if (QUANTIFIER_CHARS.indexOf(c) >= 0) {
+        // quantified literal char: optional or repeated, so the run ends before it.
+        if (run.length() > 0) {
+          run.setLength(run.length() - 1);
+        }
+        longest = longest(longest, run);
+        i = skipQuantifier(alternative, i);
+        if (i < 0) {
+          return null;
+        }
+        continue;
+      }
+
+      if (c == '\\' && !Character.isLetterOrDigit(alternative.charAt(i + 1))) {
+        // escaped literal char.
+        run.append(alternative.charAt(i + 1));
+        i += 2;
+        continue;
+      }
+      if (c != '\\' && c != '[' && c != '(' && c != '.' && c != '^' && c != '$') {
+        run.append(c);
+        i++;
+        continue;
+      }
+
+      // any other atom ends the run, with its quantifier if any.
+      longest = longest(longest, run);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '[') {
+        i = skipCharacterClass(alternative, i);
+      } else if (c == '(') {
+        i = skipGroup(alternative, i);
+      } else {
+        i++;
+      }
+      if (i < 0) {
+        return null;
+      }
+      if (i < alternative.length() && QUANTIFIER_CHARS.indexOf(alternative.charAt(i)) >= 0) {
+        i = skipQuantifier(alternative, i);
+        if (i < 0) {
+          return null;
+        }
+      }
+    }
+    return longest(longest, run);
+  }
+
+  private static String longest(String longest, StringBuilder run) {
+    String candidate = run.toString();
+    run.setLength(0);
+    return candidate.length() > longest.length() ? candidate : longest;
+  }
+
+  /**
+   * @return the index after the quantifier (and its lazy / possessive suffix) at i, or -1.
+   */
+  private static int skipQuantifier(String regex, int i) {
+    if (regex.charAt(i) == '{') {
+      int close = regex.indexOf('}', i);
+      if (close < 0) {
+        return -1;
+      }
+      i = close + 1;
+    } else {
+      i++;
+    }
+    if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the index after the group starting at i, or -1 if it's not closed.
+   */
+  private static int skipGroup(String regex, int i) {
+    int depth = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i < 0) {
+          return -1;
+        }
+      } else {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && --depth == 0) {
+          return i + 1;
+        }
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the index after the (possibly nested) character class starting at i, or -1 if it's
+   *     not closed.
+   */
+  private static int skipCharacterClass(String regex, int i) {
+    int depth = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        depth++;
+        i++;
+        // a ']' right after the opening (or its negation) is a literal.
+        if (i < regex.length() && regex.charAt(i) == '^') {
+          i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+          i++;
+        }
+        continue;
+      }
+      if (c == ']' && --depth == 0) {
+        return i + 1;
+      }
+      i++;
+    }
+    return -1;
+  }
+}
@@ -1,7 +1,10 @@
 package com.tmilar.labelsimplification.util;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -11,8 +14,6 @@ public class TreeNode<T> {
   public TreeNode<T> parent;
   public List<TreeNode<T>> children;
 
-  private List<TreeNode<T>> elementsIndex;
-
   public boolean isRoot() {
     return parent == null;
   }
@@ -24,15 +25,12 @@ public class TreeNode<T> {
   public TreeNode(T data) {
     this.data = data;
     this.children = new LinkedList<>();
-    this.elementsIndex = new LinkedList<>();
-    this.elementsIndex.add(this);
   }
 
   public TreeNode<T> addChild(T child) {
     TreeNode<T> childNode = new TreeNode<T>(child);
     childNode.parent = this;
     this.children.add(childNode);
-    this.registerChildForSearch(childNode);
     return childNode;
   }
 
@@ -44,22 +42,8 @@ public class TreeNode<T> {
     }
   }
 
-  private void registerChildForSearch(TreeNode<T> node) {
-    elementsIndex.add(node);
-    if (parent != null) {
-      parent.registerChildForSearch(node);
-    }
-  }
-
   public TreeNode<T> findTreeNode(Comparable<T> cmp) {
-    for (TreeNode<T> element : this.elementsIndex) {
-      T elData = element.data;
-      if (cmp.compareTo(elData) == 0) {
-        return element;
-      }
-    }
-
-    return null;
+    return findTreeNodeBy(data -> cmp.compareTo(data) == 0).orElse(null);
   }
 
   @Override
@@ -67,9 +51,24 @@ public class TreeNode<T> {
     return data != null ? data.toString() : "[data null]";
   }
 
+  /**
+   * Search this node and all of its descendants (depth-first) for the first node matching.
+   * Linear in the subtree size: index nodes by key instead when looking up repeatedly.
+   */
   public Optional<TreeNode<T>> findTreeNodeBy(Predicate<T> comparator) {
-    return this.elementsIndex.stream()
-        .filter(node -> comparator.test(node.data))
-        .findFirst();
+    Deque<TreeNode<T>> pending = new ArrayDeque<>();
+    pending.push(this);
+    while (!pending.isEmpty()) {
+      TreeNode<T> node = pending.pop();
+      if (comparator.test(node.data)) {
+        return Optional.of(node);
+      }
+      // push children backwards, so they're visited in order.
+      ListIterator<TreeNode<T>> children = node.children.listIterator(node.children.size());
+      while (children.hasPrevious()) {
+        pending.push(children.previous());
+      }
+    }
+    return Optional.empty();
   }
 }
\ No newline at end of file
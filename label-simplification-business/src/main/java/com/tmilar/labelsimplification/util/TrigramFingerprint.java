@@ -0,0 +1,80 @@
+package com.tmilar.labelsimplification.util;
+
+/**
+ * Bit set of the (US-ASCII case folded) trigrams of a text, hashed into 4096 bits. Tells cheaply
+ * when a literal can't be in the text: if any trigram of the literal is missing, so is the
+ * literal. False positives are possible, false negatives are not.
+ *
+ * The bits are computed on first use, so creating a fingerprint that's never queried is free.
+ * Not thread-safe.
+ */
+public class TrigramFingerprint {
+
+  private static final int HASH_BITS = 12;
+
+  private final String text;
+  private long[] bits;
+
+  public TrigramFingerprint(String text) {
+    this.text = text;
+  }
+
+  /**
+   * @param trigramHashes - trigram hashes of a literal, from {@link #trigramHashes(String)}.
+   * @return false if the literal is certainly not in the text.
+   */
+  public boolean mayContain(int[] trigramHashes) {
+    if (bits == null) {
+      bits = computeBits(text);
+    }
+    for (int hash : trigramHashes) {
+      if ((bits[hash >>> 6] & (1L << hash)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long[] computeBits(String text) {
+    long[] bits = new long[(1 << HASH_BITS) / 64];
+    if (text.length() < 3) {
+      return bits;
+    }
+    char a = fold(text.charAt(0));
+    char b = fold(text.charAt(1));
+    for (int i = 2; i < text.length(); i++) {
+      char c = fold(text.charAt(i));
+      int hash = hash(a, b, c);
+      bits[hash >>> 6] |= 1L << hash;
+      a = b;
+      b = c;
+    }
+    return bits;
+  }
+
+  /**
+   * @param literal - at least 3 chars long.
+   * @return hash of each trigram of the literal.
+   */
+  public static int[] trigramHashes(String literal) {
+    int[] hashes = new int[Math.max(0, literal.length() - 2)];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = hash(fold(literal.charAt(i)), fold(literal.charAt(i + 1)),
+          fold(literal.charAt(i + 2)));
+    }
+    return hashes;
+  }
+
+  private static int hash(char a, char b, char c) {
+    int hash = (a * 31 + b) * 31 + c;
+    return (hash * 0x9E3779B1) >>> (32 - HASH_BITS);
+  }
+
+  /**
+   * US-ASCII case folding, same as {@code Pattern.CASE_INSENSITIVE} without
+   * {@code UNICODE_CASE}.
+   */
+  private static char fold(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+}
@@ -1,20 +1,43 @@
 package com.tmilar.labelsimplification;
 
+import com.tmilar.labelsimplification.model.Extraction;
 import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.KeyOrdinals;
 import com.tmilar.labelsimplification.model.Label;
 import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.CacheStats;
+import com.tmilar.labelsimplification.service.CategoryMetrics;
+import com.tmilar.labelsimplification.service.ExtractorMetrics;
+import com.tmilar.labelsimplification.service.InMemorySimplificationMetrics;
+import com.tmilar.labelsimplification.service.LabelExplanation;
+import com.tmilar.labelsimplification.service.LabelProjection;
 import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import com.tmilar.labelsimplification.service.MetricsSnapshot;
+import com.tmilar.labelsimplification.service.ReloadResult;
+import com.tmilar.labelsimplification.service.RemainderMode;
+import com.tmilar.labelsimplification.service.StaleRulesSnapshotException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class LabelSimplificationServiceTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private LabelSimplificationService labelSimplificationService;
 
   @Before
@@ -47,11 +70,324 @@ public class LabelSimplificationServiceTest {
 
   @Test
   public void simplifyLabel_shouldSimplifyLabel_forValidCase() {
-    Label label = new Label("Pokemon SM1 booster Box ");
+    Label label = new Label("Pokemon SM1 booster Box ", "TCG");
     String expectedLabel = "Pokemon Sun & Moon Booster Box Ingles";
 
     SimplifiedLabel simplifiedLabel = labelSimplificationService.simplifyLabel(label);
 
     Assert.assertEquals(expectedLabel, simplifiedLabel.getSimplifiedLabel());
   }
+
+  @Test
+  public void simplifyLabel_shouldExtractSameValues_forLiteralAndRegexMatchers() {
+    Label label = new Label("pkm guardians rising display spanish", "TCG");
+
+    SimplifiedLabel simplifiedLabel = labelSimplificationService.simplifyLabel(label);
+    Map<String, String> extractedValues = simplifiedLabel.getExtractedValuesMap();
+
+    Assert.assertEquals("Pokemon", extractedValues.get("Juego"));
+    Assert.assertEquals("Sun & Moon: Guardians Rising", extractedValues.get("Coleccion"));
+    Assert.assertNull(extractedValues.get("TipoProducto"));
+    Assert.assertEquals("Ingles", extractedValues.get("Idioma"));
+  }
+
+  @Test
+  public void extract_shouldReturnMatchSpansAndGroups_inOneEvaluation() {
+    Extractor extractor = new Extractor("Coleccion", "Sun & Moon", "SM(\\d)");
+
+    Extraction extraction = extractor.extract("Pokemon sm1 and SM2");
+
+    Assert.assertEquals("Sun & Moon", extraction.getValue());
+    Assert.assertArrayEquals(new int[]{8, 11, 16, 19}, extraction.getMatchSpans());
+    Assert.assertEquals(Arrays.asList("sm1", "SM2"), extraction.getMatches());
+    Assert.assertNull(extractor.extract("Pokemon Guardians Rising"));
+  }
+
+  @Test
+  public void simplifyLabel_shouldRemoveOnlyMatchedRegions_fromRemainder() {
+    Label label = new Label("Pokemon SM1 #42", "TCG");
+
+    SimplifiedLabel simplifiedLabel = labelSimplificationService.simplifyLabel(label);
+
+    Assert.assertEquals("Pokemon Sun & Moon Ingles #42", simplifiedLabel.getSimplifiedLabel());
+  }
+
+  @Test
+  public void simplifyLabel_shouldRemoveMatchedSubstrings_inLegacyRemainderMode() {
+    labelSimplificationService.setRemainderMode(RemainderMode.MATCHED_SUBSTRINGS);
+    Label label = new Label("Pokemon SM1 #42", "TCG");
+
+    SimplifiedLabel simplifiedLabel = labelSimplificationService.simplifyLabel(label);
+
+    Assert.assertEquals("Pokemon Sun & Moon Ingles 42", simplifiedLabel.getSimplifiedLabel());
+  }
+
+  @Test
+  public void simplifyLabel_shouldStoreExtractionsByKeyOrdinal_andBuildMapsOnRequest() {
+    SimplifiedLabel simplifiedLabel = labelSimplificationService
+        .simplifyLabel(new Label("Pokemon SM1 #42", "TCG"));
+
+    KeyOrdinals keyOrdinals = simplifiedLabel.getExtractions().getKeyOrdinals();
+    Assert.assertEquals(Arrays.asList("REMAINDER", "Juego", "Coleccion", "TipoProducto", "Idioma"),
+        keyOrdinals.getKeys());
+    Assert.assertEquals("Pokemon", simplifiedLabel.getExtractedValue("Juego"));
+    Assert.assertEquals("Sun & Moon", simplifiedLabel.getExtractedValue("Coleccion"));
+    Assert.assertNull(simplifiedLabel.getExtractedValue("TipoProducto"));
+    Assert.assertEquals("#42", simplifiedLabel.getExtractedValue("REMAINDER"));
+
+    Map<String, List<Pair<Extractor, String>>> extractionsMap = simplifiedLabel
+        .getExtractionsMap();
+    Assert.assertEquals(keyOrdinals.getKeys(), new ArrayList<>(extractionsMap.keySet()));
+    Assert.assertTrue(extractionsMap.get("TipoProducto").isEmpty());
+    Assert.assertEquals("#42", extractionsMap.get("REMAINDER").get(0).getValue());
+    Assert.assertEquals(simplifiedLabel.getExtractedValuesMap(),
+        new SimplifiedLabel(simplifiedLabel).getExtractedValuesMap());
+    Assert.assertEquals(keyOrdinals.getKeys(), new ArrayList<>(
+        new SimplifiedLabel(simplifiedLabel).getExtractedValuesMap().keySet()));
+  }
+
+  @Test
+  public void load_shouldMergeMatchers_forDuplicatePaths() {
+    List<Extractor> extractionRules = sampleExtractionRules();
+    extractionRules.add(
+        new Extractor("Coleccion", "Sun & Moon", "Sol y Luna", "Juego.Pokemon[0]", 0, "TCG"));
+    labelSimplificationService.load(extractionRules, new HashMap<>());
+
+    SimplifiedLabel simplifiedLabel = labelSimplificationService
+        .simplifyLabel(new Label("Pokemon Sol y Luna", "TCG"));
+
+    Assert.assertEquals("Sun & Moon", simplifiedLabel.getExtractedValuesMap().get("Coleccion"));
+  }
+
+  @Test
+  public void simplifyLabel_shouldVisitDeeperLevels_depthFirst() {
+    List<Extractor> extractionRules = sampleExtractionRules();
+    extractionRules.add(new Extractor("Edicion", "Primera", "1st",
+        "Juego.Pokemon[0].Coleccion.Sun & Moon[0]", 0, "TCG"));
+    labelSimplificationService.load(extractionRules, new HashMap<>());
+    Label label = new Label("Pokemon SM1 1st booster box", "TCG");
+
+    Assert.assertEquals("Pokemon Sun & Moon Booster Box Ingles Primera",
+        labelSimplificationService.simplifyLabel(label).getSimplifiedLabel());
+    List<String> visited = labelSimplificationService.explainLabel(label).getNodeEvaluations()
+        .stream().map(e -> e.getDepth() + ":" + e.getExtractor().getExtractValue())
+        .collect(Collectors.toList());
+    Assert.assertEquals(Arrays.asList("0:Magic", "0:Pokemon", "1:Sun & Moon", "2:Primera",
+        "1:Sun & Moon: Guardians Rising", "1:Booster Box", "0:Español", "0:Ingles"), visited);
+  }
+
+  @Test
+  public void simplifyLabel_shouldComputeOnlyProjectedKeys() {
+    Label label = new Label("Pokemon SM1 #42", "TCG");
+    SimplifiedLabel full = labelSimplificationService.simplifyLabel(label);
+
+    SimplifiedLabel projected = labelSimplificationService
+        .simplifyLabel(label, new LabelProjection(Arrays.asList("Juego", "Idioma")));
+
+    Assert.assertEquals(full.getExtractedValue("Juego"), projected.getExtractedValue("Juego"));
+    Assert.assertEquals(full.getExtractedValue("Idioma"), projected.getExtractedValue("Idioma"));
+    Assert.assertNull(projected.getExtractedValue("Coleccion"));
+    Assert.assertNull(projected.getExtractedValue("REMAINDER"));
+    Assert.assertEquals("Pokemon Ingles", projected.getSimplifiedLabel());
+
+    // the remainder depends on every key matches.
+    SimplifiedLabel withRemainder = labelSimplificationService
+        .simplifyLabel(label, new HashSet<>(Arrays.asList("Coleccion", "REMAINDER")));
+
+    Assert.assertEquals("#42", withRemainder.getExtractedValue("REMAINDER"));
+    Assert.assertEquals(full.getSimplifiedLabel(), withRemainder.getSimplifiedLabel());
+    // so every key is returned, not only the requested ones.
+    Assert.assertEquals(full.getExtractedValuesMap(), withRemainder.getExtractedValuesMap());
+    Assert.assertEquals("Ingles", withRemainder.getExtractedValue("Idioma"));
+  }
+
+  @Test
+  public void simplifyLabel_shouldSkipDecidedKeys_withEarlyExit() {
+    Label label = new Label("Pkm SM1 SM2 booster box", "TCG");
+    SimplifiedLabel full = labelSimplificationService.simplifyLabel(label);
+
+    labelSimplificationService.setEarlyExit(true);
+    SimplifiedLabel earlyExit = labelSimplificationService.simplifyLabel(label);
+
+    Assert.assertEquals(full.getSimplifiedLabel(), earlyExit.getSimplifiedLabel());
+    Assert.assertEquals(full.getExtractedValuesMap(), earlyExit.getExtractedValuesMap());
+    // "Sun & Moon" matched at the top Coleccion priority: "Guardians Rising" is not evaluated.
+    Assert.assertEquals(2, full.getExtractionsMap().get("Coleccion").size());
+    Assert.assertEquals(1, earlyExit.getExtractionsMap().get("Coleccion").size());
+    // the explanation still lists every candidate.
+    Assert.assertEquals(2, labelSimplificationService.explainLabel(label).getKeyDecisions().stream()
+        .filter(decision -> decision.getKey().equals("Coleccion")).findFirst().get()
+        .getCandidates().size());
+  }
+
+  @Test
+  public void simplifyAll_shouldReturnResultsInInputOrder() {
+    String[] labelStrings = {"Pokemon SM1 booster Box", "Pkm Guardians Rising", "Magic booster box",
+        "Pokemon #42", "unknown item"};
+    List<Label> labels = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      labels.add(new Label(labelStrings[i % labelStrings.length], i % 7 == 0 ? "Other" : "TCG"));
+    }
+    labelSimplificationService.setForkJoinPool(new ForkJoinPool(4));
+    labelSimplificationService.setBatchChunkSize(16);
+
+    List<SimplifiedLabel> simplifiedLabels = labelSimplificationService.simplifyAll(labels);
+
+    Assert.assertEquals(labels.size(), simplifiedLabels.size());
+    for (int i = 0; i < labels.size(); i++) {
+      Assert.assertEquals(
+          labelSimplificationService.simplifyLabel(labels.get(i)).getSimplifiedLabel(),
+          simplifiedLabels.get(i).getSimplifiedLabel());
+      Assert.assertEquals(labels.get(i).getLabel(), simplifiedLabels.get(i).getLabel());
+    }
+  }
+
+  @Test
+  public void simplifyLabel_shouldReturnCachedCopies_untilRulesReload() {
+    labelSimplificationService.setCacheMaximumSize(100);
+    Label label = new Label("Pokemon SM1 booster Box ", "TCG");
+
+    SimplifiedLabel first = labelSimplificationService.simplifyLabel(label);
+    first.setSimplifiedLabel("corrupted by caller");
+    SimplifiedLabel second = labelSimplificationService.simplifyLabel(label);
+
+    Assert.assertEquals("Pokemon Sun & Moon Booster Box Ingles", second.getSimplifiedLabel());
+    CacheStats stats = labelSimplificationService.getCacheStats();
+    Assert.assertEquals(1, stats.getHitCount());
+    Assert.assertEquals(1, stats.getMissCount());
+
+    labelSimplificationService.load(sampleExtractionRules(), new HashMap<>());
+    labelSimplificationService.simplifyLabel(label);
+
+    Assert.assertEquals(2, labelSimplificationService.getCacheStats().getMissCount());
+  }
+
+  @Test
+  public void simplifyLabel_shouldKeepCachedExtractions_whenCallersChangeTheirs() {
+    labelSimplificationService.setCacheMaximumSize(100);
+    Label label = new Label("Pkm SM1", "TCG");
+
+    Extraction first = (Extraction) labelSimplificationService.simplifyLabel(label)
+        .getExtractionsMap().get("Juego").get(0);
+    try {
+      first.getMatches().add("BOGUS");
+      Assert.fail("extraction matches should be unmodifiable");
+    } catch (UnsupportedOperationException expected) {
+      // unmodifiable.
+    }
+    first.getMatchSpans()[0] = 99;
+
+    Extraction second = (Extraction) labelSimplificationService.simplifyLabel(label)
+        .getExtractionsMap().get("Juego").get(0);
+    Assert.assertEquals(Arrays.asList("Pkm"), second.getMatches());
+    Assert.assertArrayEquals(new int[]{0, 3}, second.getMatchSpans());
+  }
+
+  @Test
+  public void simplifyLabel_shouldNotReturnCachedResults_ofPreviousSettings() {
+    labelSimplificationService.setCacheMaximumSize(100);
+    Label label = new Label("Pkm #1 Pkm x", "TCG");
+    labelSimplificationService.simplifyLabel(label);
+
+    labelSimplificationService.setRemainderMode(RemainderMode.MATCHED_SUBSTRINGS);
+    SimplifiedLabel cached = labelSimplificationService.simplifyLabel(label);
+
+    LabelSimplificationService uncached = new LabelSimplificationService();
+    uncached.load(sampleExtractionRules(), new HashMap<>());
+    uncached.setRemainderMode(RemainderMode.MATCHED_SUBSTRINGS);
+    Assert.assertEquals(uncached.simplifyLabel(label).getExtractedValue("REMAINDER"),
+        cached.getExtractedValue("REMAINDER"));
+    Assert.assertEquals(2, labelSimplificationService.getCacheStats().getMissCount());
+  }
+
+  @Test
+  public void simplifyLabel_shouldRecordMetrics_onlyWhenEnabled() {
+    Label label = new Label("Pokemon SM1 #42", "TCG");
+    InMemorySimplificationMetrics metrics = new InMemorySimplificationMetrics();
+    labelSimplificationService.simplifyLabel(label);
+    labelSimplificationService.setMetrics(metrics);
+    labelSimplificationService.simplifyLabel(label);
+
+    MetricsSnapshot snapshot = metrics.snapshot();
+    Assert.assertEquals(1, snapshot.getCategories().size());
+    CategoryMetrics categoryMetrics = snapshot.getCategories().get(0);
+    Assert.assertEquals("TCG", categoryMetrics.getCategory());
+    Assert.assertEquals(1, categoryMetrics.getLabels());
+    // roots: Magic, Pokemon, Español, Ingles. Pokemon children: SM1, SM2, Booster Box.
+    Assert.assertEquals(7, categoryMetrics.getEvaluations());
+    Assert.assertEquals(3, categoryMetrics.getMatches());
+
+    ExtractorMetrics pokemon = snapshot.getExtractors().stream()
+        .filter(e -> e.getPath().equals("Juego.Pokemon[0]")).findFirst().get();
+    Assert.assertEquals(1, pokemon.getEvaluations());
+    Assert.assertEquals(1.0, pokemon.getHitRatio(), 0);
+  }
+
+  @Test
+  public void explainLabel_shouldTraceVisitedNodes_andPriorityDecisions() {
+    Label label = new Label("Pkm SM1 SM2", "TCG");
+
+    LabelExplanation explanation = labelSimplificationService.explainLabel(label);
+
+    Assert.assertEquals(labelSimplificationService.simplifyLabel(label).getSimplifiedLabel(),
+        explanation.getSimplifiedLabel().getSimplifiedLabel());
+    List<String> visited = explanation.getNodeEvaluations().stream()
+        .map(e -> e.getDepth() + ":" + e.getPath() + (e.isMatched() ? "+" : "-"))
+        .collect(Collectors.toList());
+    Assert.assertEquals(Arrays.asList("0:Juego.Magic[0]-", "0:Juego.Pokemon[0]+",
+        "1:Juego.Pokemon[0].Coleccion.Sun & Moon[0]+",
+        "1:Juego.Pokemon[0].Coleccion.Sun & Moon: Guardians Rising[0]+",
+        "1:Juego.Pokemon[0].TipoProducto.Booster Box[0]-",
+        "0:Idioma.Español[0]-", "0:Idioma.Ingles[0]+"), visited);
+
+    LabelExplanation.KeyDecision coleccion = explanation.getKeyDecisions().stream()
+        .filter(decision -> decision.getKey().equals("Coleccion")).findFirst().get();
+    Assert.assertEquals(2, coleccion.getCandidates().size());
+    // same priority: the first one visited wins.
+    Assert.assertEquals("Sun & Moon", coleccion.getWinner().getValue());
+  }
+
+  @Test
+  public void reload_shouldReportPublishedRuleCounts() {
+    Map<String, List<String>> categoryStopWords = new HashMap<>();
+    categoryStopWords.put("TCG", Arrays.asList("sealed", "new"));
+
+    ReloadResult reloadResult = labelSimplificationService
+        .reload(sampleExtractionRules(), categoryStopWords);
+
+    Assert.assertEquals(9, reloadResult.getRulesCount());
+    Assert.assertEquals(1, reloadResult.getCategoriesCount());
+    // 'Theros' rule parent path doesn't exist, so it's not added.
+    Assert.assertEquals(8, reloadResult.getTreeNodesCount());
+    Assert.assertEquals(2, reloadResult.getStopWordsCount());
+    SimplifiedLabel simplifiedLabel = labelSimplificationService
+        .simplifyLabel(new Label("Pokemon SM1 sealed booster Box new", "TCG"));
+    Assert.assertEquals("Pokemon Sun & Moon Booster Box Ingles",
+        simplifiedLabel.getSimplifiedLabel());
+  }
+
+  @Test
+  public void loadRules_shouldRestoreSavedRules_andRejectStaleSnapshots() throws IOException {
+    Path snapshotFile = temporaryFolder.getRoot().toPath().resolve("rules.bin");
+    labelSimplificationService.saveRules(snapshotFile, "checksum-1");
+
+    LabelSimplificationService restoredService = new LabelSimplificationService();
+    ReloadResult reloadResult = restoredService.loadRules(snapshotFile, "checksum-1");
+
+    Assert.assertEquals(8, reloadResult.getTreeNodesCount());
+    Assert.assertEquals(labelSimplificationService.getCategoryMappings(),
+        restoredService.getCategoryMappings());
+    for (String labelStr : Arrays.asList("Pokemon SM1 booster Box ", "pkm SM2 esp", "Magic")) {
+      Label label = new Label(labelStr, "TCG");
+      Assert.assertEquals(labelSimplificationService.simplifyLabel(label).getSimplifiedLabel(),
+          restoredService.simplifyLabel(label).getSimplifiedLabel());
+    }
+
+    try {
+      restoredService.loadRules(snapshotFile, "checksum-2");
+      Assert.fail("Snapshot of other source rules should be rejected");
+    } catch (StaleRulesSnapshotException e) {
+      Assert.assertTrue(e.getMessage().contains("other source rules"));
+    }
+  }
 }
@@ -0,0 +1,130 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalSimplifierTest {
+
+  private static final List<Label> LABELS = Arrays.asList(
+      new Label("Pkm SM1 box", "TCG"),
+      new Label("Pokemon booster the XY", "TCG"),
+      new Label("Mtg THS the pack", "TCG"),
+      new Label("Magic Theros booster", "TCG"));
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static List<Extractor> rules(String therosMatcher) {
+    return new ArrayList<>(Arrays.asList(
+        new Extractor("Juego", "Pokemon", "Pkm|Pokemon", null, 0, "TCG"),
+        new Extractor("Juego", "Magic", "Mtg|Magic", null, 0, "TCG"),
+        new Extractor("Coleccion", "Sun & Moon", "SM1", "Juego.Pokemon[0]", 0, "TCG"),
+        new Extractor("Coleccion", "Theros", therosMatcher, "Juego.Magic[0]", 0, "TCG")));
+  }
+
+  private static Map<String, List<String>> stopWords(String... words) {
+    return Collections.singletonMap("TCG", Arrays.asList(words));
+  }
+
+  private static void assertSameResults(List<Extractor> rules, Map<String, List<String>> stopWords,
+      List<SimplifiedLabel> results) {
+    LabelSimplificationService fullRun = new LabelSimplificationService();
+    fullRun.load(rules, stopWords);
+    for (int i = 0; i < LABELS.size(); i++) {
+      SimplifiedLabel expected = fullRun.simplifyLabel(LABELS.get(i));
+      Assert.assertEquals(expected.getSimplifiedLabel(), results.get(i).getSimplifiedLabel());
+      for (String key : fullRun.getCategoryMappings().get("TCG")) {
+        Assert.assertEquals(expected.getExtractedValue(key),
+            results.get(i).getExtractedValue(key));
+      }
+      // reused results hold the same extractors as fresh ones.
+      Assert.assertEquals(extractorPaths(expected), extractorPaths(results.get(i)));
+    }
+  }
+
+  private static Map<String, List<String>> extractorPaths(SimplifiedLabel simplifiedLabel) {
+    Map<String, List<String>> paths = new LinkedHashMap<>();
+    simplifiedLabel.getExtractionsMap().forEach((key, extractions) -> paths.put(key,
+        extractions.stream()
+            .map(extraction -> extraction.getLeft() == null ? "remainder " + extraction.getRight()
+                : extraction.getLeft().getCurrentPath())
+            .collect(Collectors.toList())));
+    return paths;
+  }
+
+  @Test
+  public void simplifyAll_shouldOnlySimplifyTheLabelsReachingChangedRules() throws IOException {
+    LabelSimplificationService service = new LabelSimplificationService();
+    service.load(rules("THS"), stopWords("the"));
+    IncrementalSimplifier firstRun = new IncrementalSimplifier(service, null);
+    firstRun.simplifyAll(LABELS);
+    Assert.assertEquals(4, firstRun.getSimplifiedCount());
+
+    Path stateFile = temporaryFolder.getRoot().toPath().resolve("state.bin");
+    firstRun.getState().write(stateFile);
+    SimplificationState state = SimplificationState.read(stateFile);
+    Assert.assertEquals(4, state.size());
+
+    // only the Magic node children changed: the Pokemon labels are reused.
+    List<Extractor> newRules = rules("THS|Theros");
+    service.reload(newRules, stopWords("the"));
+    IncrementalSimplifier secondRun = new IncrementalSimplifier(service, state);
+    List<SimplifiedLabel> results = secondRun.simplifyAll(LABELS);
+
+    Assert.assertEquals(2, secondRun.getReusedCount());
+    Assert.assertEquals(2, secondRun.getSimplifiedCount());
+    Assert.assertEquals("Magic Theros booster", results.get(3).getSimplifiedLabel());
+    assertSameResults(newRules, stopWords("the"), results);
+
+    // an added root rule is evaluated for every label.
+    newRules.add(new Extractor("Idioma", "Ingles", "booster", null, 0, "TCG"));
+    service.reload(newRules, stopWords("the"));
+    IncrementalSimplifier thirdRun = new IncrementalSimplifier(service, secondRun.getState());
+    results = thirdRun.simplifyAll(LABELS);
+
+    Assert.assertEquals(0, thirdRun.getReusedCount());
+    assertSameResults(newRules, stopWords("the"), results);
+
+    // a regex budget can turn matches into non matches.
+    service.setRegexBudget(new RegexBudget(RegexBudget.SUGGESTED_STEPS, false));
+    IncrementalSimplifier budgetRun = new IncrementalSimplifier(service, thirdRun.getState());
+    budgetRun.simplifyAll(LABELS);
+    Assert.assertEquals(Collections.singleton("TCG"), budgetRun.getDiff().getChangedCategories());
+    Assert.assertEquals(0, budgetRun.getReusedCount());
+  }
+
+  @Test
+  public void simplifyAll_shouldSimplifyTheWholeCategoryAgain_whenStopWordsChange() {
+    LabelSimplificationService service = new LabelSimplificationService();
+    service.load(rules("THS"), stopWords("the"));
+    IncrementalSimplifier firstRun = new IncrementalSimplifier(service, null);
+    firstRun.simplifyAll(LABELS);
+
+    service.reload(rules("THS"), stopWords("the", "box"));
+    IncrementalSimplifier secondRun = new IncrementalSimplifier(service, firstRun.getState());
+    List<SimplifiedLabel> results = secondRun.simplifyAll(LABELS);
+
+    Assert.assertEquals(Collections.singleton("TCG"), secondRun.getDiff().getChangedCategories());
+    Assert.assertEquals(4, secondRun.getSimplifiedCount());
+    assertSameResults(rules("THS"), stopWords("the", "box"), results);
+
+    IncrementalSimplifier unchangedRun = new IncrementalSimplifier(service, secondRun.getState());
+    unchangedRun.simplifyAll(LABELS);
+    Assert.assertTrue(unchangedRun.getDiff().isEmpty());
+    Assert.assertEquals(4, unchangedRun.getReusedCount());
+  }
+}
@@ -0,0 +1,76 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegexBudgetTest {
+
+  // takes seconds on a run of 'a's not followed by 'b'.
+  private static final String CATASTROPHIC_REGEX = "(.*a){20}b";
+  private static final String LONG_LABEL = "aaaaaaaaaaaaaaaaaaaaaaaaaaaa!";
+
+  @Test
+  public void hasNestedQuantifiers_shouldFlagUnboundedQuantifiersOfQuantifiedGroups() {
+    Assert.assertTrue(RegexBudget.hasNestedQuantifiers(CATASTROPHIC_REGEX));
+    Assert.assertTrue(RegexBudget.hasNestedQuantifiers("(a+)+b"));
+    Assert.assertTrue(RegexBudget.hasNestedQuantifiers("(\\w+\\s?)*$"));
+    Assert.assertTrue(RegexBudget.hasNestedQuantifiers("((ab)*c){2,}"));
+
+    Assert.assertFalse(RegexBudget.hasNestedQuantifiers("SM1|Sun & Moon"));
+    Assert.assertFalse(RegexBudget.hasNestedQuantifiers("(\\d+) ?(gb|tb)"));
+    Assert.assertFalse(RegexBudget.hasNestedQuantifiers("(ab)+ [(+]+"));
+    Assert.assertFalse(RegexBudget.hasNestedQuantifiers("(a+)?(b*){1} x{1,}"));
+  }
+
+  @Test
+  public void extract_shouldAbortEvaluationsOverBudget_andQuarantineTheRule() {
+    Extractor extractor = new Extractor("Key", "Value", CATASTROPHIC_REGEX);
+    RegexBudget regexBudget = new RegexBudget(100_000, true);
+
+    Assert.assertNull(regexBudget.extract(extractor, "no match", null));
+    Assert.assertTrue(regexBudget.getViolations().isEmpty());
+
+    Assert.assertNull(regexBudget.extract(extractor, LONG_LABEL, null));
+    List<RegexBudgetViolation> violations = regexBudget.getViolations();
+    Assert.assertEquals(1, violations.size());
+    Assert.assertTrue(violations.get(0).isQuarantined());
+    Assert.assertEquals(LONG_LABEL, violations.get(0).getSampleLabel());
+
+    // quarantined: not evaluated anymore.
+    Assert.assertNull(regexBudget.extract(extractor, LONG_LABEL, null));
+    Assert.assertEquals(1, regexBudget.getViolations().get(0).getCount());
+
+    regexBudget.clear();
+    Assert.assertTrue(regexBudget.getViolations().isEmpty());
+  }
+
+  @Test
+  public void extract_shouldRunEvaluationsToCompletion_byDefault() {
+    RegexBudget regexBudget = new LabelSimplificationService().getRegexBudget();
+    Assert.assertEquals(RegexBudget.UNLIMITED, regexBudget.getSteps());
+
+    // over a 10 steps budget, still matched.
+    Extractor extractor = new Extractor("Key", "Value", "(a+)+b");
+    String label = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaab";
+    Assert.assertNull(new RegexBudget(10, false).extract(extractor, label, null));
+    Assert.assertNotNull(regexBudget.extract(extractor, label, null));
+    Assert.assertTrue(regexBudget.getViolations().isEmpty());
+  }
+
+  @Test
+  public void reload_shouldReportBacktrackingRisks() {
+    LabelSimplificationService service = new LabelSimplificationService();
+    List<Extractor> extractors = Arrays.asList(
+        new Extractor("Juego", "Pokemon", "Pkm", null, 0, "TCG"),
+        new Extractor("Juego", "Magic", CATASTROPHIC_REGEX, null, 0, "TCG"));
+
+    ReloadResult reloadResult = service.reload(extractors, Collections.emptyMap());
+
+    Assert.assertEquals(Arrays.asList("TCG: Juego.Magic[0] '(.*a){20}b'"),
+        reloadResult.getBacktrackingRisks());
+  }
+}
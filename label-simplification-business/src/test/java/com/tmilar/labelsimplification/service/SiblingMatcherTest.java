@@ -0,0 +1,40 @@
+package com.tmilar.labelsimplification.service;
+
+import com.tmilar.labelsimplification.model.Extraction;
+import com.tmilar.labelsimplification.model.Extractor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SiblingMatcherTest {
+
+  private static final Extractor[] LITERAL_CHILDREN = {
+      new Extractor("Coleccion", "Sun & Moon", "SM1|Sun & Moon"),
+      new Extractor("Coleccion", "Short first", "ab|abc"),
+      new Extractor("Coleccion", "Long first", "abc|ab"),
+      new Extractor("Coleccion", "Overlapping", "aa"),
+      new Extractor("Idioma", "Ingles", "English|")
+  };
+
+  @Test
+  public void match_shouldFindTheSameSpansAsTheRegex_withoutRunningIt() {
+    SiblingMatcher siblingMatcher = new SiblingMatcher(LITERAL_CHILDREN, 0,
+        LITERAL_CHILDREN.length);
+    String[] labels = {"Pokemon sm1 SUN & MOON sm1", "xx ABCab abc", "aaaaa", "none of them"};
+
+    for (String label : labels) {
+      Extraction[] extractions = new Extraction[LITERAL_CHILDREN.length];
+      siblingMatcher.match(label, null, extractions, 0);
+
+      for (int child = 0; child < LITERAL_CHILDREN.length; child++) {
+        Extraction expected = LITERAL_CHILDREN[child].extract(label);
+        if (expected == null) {
+          Assert.assertNull(label, extractions[child]);
+          continue;
+        }
+        Assert.assertArrayEquals(label, expected.getMatchSpans(),
+            extractions[child].getMatchSpans());
+        Assert.assertEquals(label, expected.getMatches(), extractions[child].getMatches());
+      }
+    }
+  }
+}
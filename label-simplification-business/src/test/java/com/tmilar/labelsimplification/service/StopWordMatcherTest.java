@@ -0,0 +1,58 @@
+package com.tmilar.labelsimplification.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StopWordMatcherTest {
+
+  private static String removeSequentially(String text, List<String> stopwords) {
+    for (String word : stopwords) {
+      text = text.replaceAll("(?i)" + word, "");
+    }
+    return text;
+  }
+
+  @Test
+  public void removeStopWords_shouldRemoveOccurrencesJoinedByPreviousRemovals() {
+    List<String> stopwords = Arrays.asList("x", "AB", "sealed\\s?");
+    StopWordMatcher matcher = new StopWordMatcher(stopwords);
+
+    Assert.assertEquals("", matcher.removeStopWords("aXb"));
+    Assert.assertEquals("bag", matcher.removeStopWords("Sealed bag"));
+  }
+
+  @Test
+  public void removeStopWords_shouldKeepStopWordsOrderSemantics() {
+    Assert.assertEquals("a", new StopWordMatcher(Arrays.asList("b", "ab")).removeStopWords("ab"));
+    Assert.assertEquals("", new StopWordMatcher(Arrays.asList("ab", "b")).removeStopWords("ab"));
+  }
+
+  @Test
+  public void removeStopWords_shouldMatchSequentialReplaceAll_forRandomInputs() {
+    Random random = new Random(42);
+    String alphabet = "abAB c";
+
+    for (int run = 0; run < 2000; run++) {
+      List<String> stopwords = Arrays.asList(
+          randomString(random, alphabet, 1 + random.nextInt(3)),
+          randomString(random, alphabet, 1 + random.nextInt(3)),
+          randomString(random, alphabet, 1 + random.nextInt(3)));
+      String text = randomString(random, alphabet, random.nextInt(16));
+
+      Assert.assertEquals(stopwords + " / '" + text + "'",
+          removeSequentially(text, stopwords),
+          new StopWordMatcher(stopwords).removeStopWords(text));
+    }
+  }
+
+  private static String randomString(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,34 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AhoCorasickTest {
+
+  @Test
+  public void scan_shouldFindAllOccurrences_caseInsensitive() {
+    AhoCorasick automaton = new AhoCorasick(
+        Arrays.asList("he", "she", "his", "HERS", "Ñu"), new int[]{0, 1, 2, 3, 4});
+
+    List<String> found = new ArrayList<>();
+    automaton.scan("uSHErs ñu Ñu", (id, start, end) -> {
+      found.add(id + "@" + start + "-" + end);
+      return true;
+    });
+
+    // non-ascii chars are not case folded (same as Pattern.CASE_INSENSITIVE).
+    Assert.assertEquals(Arrays.asList("1@1-4", "0@2-4", "3@2-6", "4@10-12"), found);
+  }
+
+  @Test
+  public void containsAny_shouldStopAtFirstMatch() {
+    AhoCorasick automaton = new AhoCorasick(Arrays.asList("booster box", "display"),
+        new int[]{0, 1});
+
+    Assert.assertTrue(automaton.containsAny("Pokemon SM1 Booster Box"));
+    Assert.assertFalse(automaton.containsAny("Pokemon SM1 Booster"));
+  }
+}
@@ -0,0 +1,72 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CaseFoldingTest {
+
+  @Test
+  public void fold_shouldLowerCaseAsciiLetters_only() {
+    String lowerCase = "pokemon sm1 booster box";
+    Assert.assertSame(lowerCase, CaseFolding.fold(lowerCase));
+    Assert.assertEquals("pokemon sm1 booster box", CaseFolding.fold("Pokemon SM1 Booster BOX"));
+    // same as Pattern.CASE_INSENSITIVE: non-ascii chars are not folded.
+    Assert.assertEquals("español ñu Ñu", CaseFolding.fold("ESPAñOL ñu Ñu"));
+  }
+
+  @Test
+  public void foldPattern_shouldKeepEscapes_andGiveUpOnUnsupportedConstructs() {
+    Assert.assertEquals("sm(\\d)|\\W[a-f0-9]+", CaseFolding.foldPattern("SM(\\d)|\\W[A-F0-9]+"));
+    Assert.assertNull(CaseFolding.foldPattern("(?-i)Pokemon"));
+    Assert.assertNull(CaseFolding.foldPattern("\\x50okemon"));
+    Assert.assertNull(CaseFolding.foldPattern("\\p{Lu}+"));
+    Assert.assertNull(CaseFolding.foldPattern("[!-Z]"));
+    Assert.assertNull(CaseFolding.foldPattern("[a-z&&[^k]]"));
+  }
+
+  @Test
+  public void foldPattern_shouldMatchFoldedTexts_likeCaseInsensitiveOriginals() {
+    String[] atoms = {"Pk", "m", "SM", "\\d+", "\\s?", "[aBc]", "[^Ab ]", "[a-f]", "[A-F0-9]+",
+        "(de|F)", "x?", ".", "\\.", "(aB)+", "\\W", "Ñu", "ñ", "\\bon", "[ -@]", "(o)\\1"};
+    String alphabet = "aAbBcCdDeEfFkKmMnNoOpPsSxX .1@Ññu";
+    Random random = new Random(11);
+
+    for (int n = 0; n < 2000; n++) {
+      StringBuilder regex = new StringBuilder();
+      int atomsCount = 1 + random.nextInt(5);
+      for (int i = 0; i < atomsCount; i++) {
+        if (i > 0 && random.nextInt(6) == 0) {
+          regex.append('|');
+        }
+        regex.append(atoms[random.nextInt(atoms.length)]);
+      }
+      Pattern original = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+      Pattern folded = Pattern.compile(CaseFolding.foldPattern(regex.toString()));
+
+      for (int l = 0; l < 20; l++) {
+        StringBuilder label = new StringBuilder();
+        int length = random.nextInt(16);
+        for (int i = 0; i < length; i++) {
+          label.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        String text = label.toString();
+        Assert.assertEquals(regex + " on '" + text + "'", spans(original.matcher(text)),
+            spans(folded.matcher(CaseFolding.fold(text))));
+      }
+    }
+  }
+
+  private static List<Integer> spans(Matcher matcher) {
+    List<Integer> spans = new ArrayList<>();
+    while (matcher.find()) {
+      spans.add(matcher.start());
+      spans.add(matcher.end());
+    }
+    return spans;
+  }
+}
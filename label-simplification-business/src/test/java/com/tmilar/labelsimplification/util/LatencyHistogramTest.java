@@ -0,0 +1,29 @@
+package com.tmilar.labelsimplification.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void snapshot_shouldApproximatePercentiles_byBucketUpperBound() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(100);
+    }
+    histogram.record(5000);
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    Assert.assertEquals(100, snapshot.getCount());
+    Assert.assertEquals(99 * 100 + 5000, snapshot.getTotalNanos());
+    Assert.assertEquals(5000, snapshot.getMaxNanos());
+    // 100 falls in the [64, 128) bucket.
+    Assert.assertEquals(127, snapshot.getPercentileNanos(50));
+    Assert.assertEquals(127, snapshot.getPercentileNanos(99));
+    Assert.assertEquals(5000, snapshot.getPercentileNanos(100));
+
+    LatencyHistogram.Snapshot merged = snapshot.merge(snapshot);
+    Assert.assertEquals(200, merged.getCount());
+    Assert.assertEquals(127, merged.getPercentileNanos(50));
+  }
+}
@@ -0,0 +1,79 @@
+package com.tmilar.labelsimplification.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LiteralPrefilterTest {
+
+  @Test
+  public void compile_shouldExtractRequiredLiteral_ofEachAlternative() {
+    Assert.assertEquals(Arrays.asList("Booster ", " Box"),
+        LiteralPrefilter.compile("Booster (Display )?Box|\\d+ Box").getLiterals());
+    Assert.assertEquals(Collections.singletonList("Sun & Moon"),
+        LiteralPrefilter.compile("Sun & Moon\\s*[:-]?\\s*\\w+").getLiterals());
+    // quantified chars are not required.
+    Assert.assertEquals(Collections.singletonList("booster"),
+        LiteralPrefilter.compile("boosters?\\.").getLiterals());
+    Assert.assertEquals(Collections.singletonList("1.5"),
+        LiteralPrefilter.compile("v\\d1\\.5").getLiterals());
+  }
+
+  @Test
+  public void compile_shouldGiveUp_onShortLiteralsOrUnsupportedConstructs() {
+    Assert.assertNull(LiteralPrefilter.compile("Pokemon|SM"));
+    Assert.assertNull(LiteralPrefilter.compile("(Pokemon|Pkm)"));
+    Assert.assertNull(LiteralPrefilter.compile("(?-i)Pokemon"));
+    Assert.assertNull(LiteralPrefilter.compile("\\x50okemon"));
+    Assert.assertNull(LiteralPrefilter.compile("\\QPo.kemon\\E"));
+  }
+
+  @Test
+  public void mayMatch_shouldNeverRejectMatchingLabels() {
+    String[] atoms = {"poke", "Mon", "SM", "box", "\\d+", "\\s?", "[abc]", "(de|f)", "x?", ".",
+        "\\.", "(ab)+", "[^ ]*", "Ñu", "on"};
+    String alphabet = "aAbBcCdDeEfFkKmMnNoOpPsSxX .1Ññu";
+    Random random = new Random(7);
+
+    for (int n = 0; n < 2000; n++) {
+      StringBuilder regex = new StringBuilder();
+      int atomsCount = 1 + random.nextInt(6);
+      for (int i = 0; i < atomsCount; i++) {
+        if (i > 0 && random.nextInt(6) == 0) {
+          regex.append('|');
+        }
+        regex.append(atoms[random.nextInt(atoms.length)]);
+      }
+      LiteralPrefilter prefilter = LiteralPrefilter.compile(regex.toString());
+      if (prefilter == null) {
+        continue;
+      }
+      Pattern pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+
+      for (int l = 0; l < 20; l++) {
+        StringBuilder label = new StringBuilder();
+        int length = random.nextInt(20);
+        for (int i = 0; i < length; i++) {
+          label.append(random.nextBoolean() ? alphabet.charAt(random.nextInt(alphabet.length()))
+              : prefilter.getLiterals().get(0).charAt(i % 3));
+        }
+        if (pattern.matcher(label).find()) {
+          Assert.assertTrue(regex + " on '" + label + "'",
+              prefilter.mayMatch(new TrigramFingerprint(label.toString())));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mayMatch_shouldRejectLabels_withoutAnyRequiredLiteral() {
+    LiteralPrefilter prefilter = LiteralPrefilter.compile("Booster (Display )?Box|\\d+ Packs");
+
+    Assert.assertTrue(prefilter.mayMatch(new TrigramFingerprint("POKEMON BOOSTER BOX")));
+    Assert.assertTrue(prefilter.mayMatch(new TrigramFingerprint("Pokemon 36 packs")));
+    Assert.assertFalse(prefilter.mayMatch(new TrigramFingerprint("Pokemon Elite Trainer Box")));
+  }
+}
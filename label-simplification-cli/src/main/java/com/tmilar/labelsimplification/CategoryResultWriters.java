@@ -0,0 +1,235 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * One output file per category, each written by its own thread, started when its first result
+ * is written.
+ *
+ * Results are handed off in batches through a bounded queue per category (so producers wait when
+ * a writer falls behind, instead of piling up results), then encoded into a large buffer by the
+ * writer thread and written out. Encoding and output I/O overlap with the simplification.
+ *
+ * Categories fail independently: a category whose file can't be written is logged, its results
+ * are dropped, and the other categories are still written. {@link #close()} then reports the
+ * failed categories.
+ */
+public class CategoryResultWriters implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(CategoryResultWriters.class);
+
+  private static final int BATCH_SIZE = 512;
+  // batches waiting per category writer.
+  private static final int QUEUE_CAPACITY = 16;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final List<SimplifiedLabel> END = Collections.emptyList();
+
+  private final Map<String, Set<String>> categoryMappings;
+  private final String outputCsvPath;
+  private final char csvSeparator;
+  private final ResultFormat format;
+
+  private final Map<String, CategoryWriter> categoryWriters = new LinkedHashMap<>();
+
+  public CategoryResultWriters(Map<String, Set<String>> categoryMappings, String outputCsvPath,
+      String csvSeparator, ResultFormat format) {
+    this.categoryMappings = categoryMappings;
+    this.outputCsvPath = outputCsvPath;
+    this.csvSeparator = csvSeparator.charAt(0);
+    this.format = format;
+  }
+
+  public static String categoryCsvPath(String outputCsvPath, String category) {
+    return outputCsvPath.replace(".csv", String.format("_%s.csv", category));
+  }
+
+  /**
+   * @return the category output path: the csv one, with the format extension.
+   */
+  public static String categoryOutputPath(String outputCsvPath, String category,
+      ResultFormat format) {
+    String csvPath = categoryCsvPath(outputCsvPath, category);
+    if (format == ResultFormat.CSV) {
+      return csvPath;
+    }
+    String base = csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath;
+    return base + "." + format.getExtension();
+  }
+
+  public static List<String> header(Set<String> categoryHeader) {
+    List<String> header = new ArrayList<>(categoryHeader.size() + 2);
+    header.addAll(Arrays.asList("OriginalItem", "CatalogItem"));
+    header.addAll(categoryHeader);
+    return header;
+  }
+
+  public static List<String> record(SimplifiedLabel label, Set<String> categoryHeader) {
+    List<String> record = new ArrayList<>(categoryHeader.size() + 2);
+    record.add(label.getLabel());
+    record.add(label.getSimplifiedLabel());
+    for (String catHeader : categoryHeader) {
+      record.add(label.getExtractedValue(catHeader));
+    }
+    return record;
+  }
+
+  /**
+   * Queue the result to be written to its category file. Blocks while the category writer queue
+   * is full. Results of a failed category are dropped.
+   *
+   * @throws IOException if interrupted while waiting.
+   */
+  public synchronized void write(String category, SimplifiedLabel label) throws IOException {
+    CategoryWriter writer = categoryWriters.get(category);
+    if (writer == null) {
+      writer = new CategoryWriter(category, categoryMappings.get(category));
+      categoryWriters.put(category, writer);
+    }
+    writer.pending.add(label);
+    if (writer.pending.size() == BATCH_SIZE) {
+      writer.submit(writer.pending);
+      writer.pending = new ArrayList<>(BATCH_SIZE);
+    }
+  }
+
+  /**
+   * Write the remaining results, and wait for every category file to be complete.
+   *
+   * @throws IOException if some category couldn't be written (after writing all the others).
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    List<String> failedCategories = new ArrayList<>();
+    List<IOException> failures = new ArrayList<>();
+    for (CategoryWriter writer : categoryWriters.values()) {
+      if (!writer.pending.isEmpty()) {
+        writer.submit(writer.pending);
+      }
+      writer.submit(END);
+      writer.await();
+      if (writer.failure == null) {
+        logger.info("Saved category '{}' {} results to: '{}'", writer.category, writer.count,
+            writer.path);
+        continue;
+      }
+      failedCategories.add(writer.category);
+      failures.add(writer.failure);
+    }
+    categoryWriters.clear();
+    if (!failures.isEmpty()) {
+      IOException closeException = new IOException(
+          "Could not save categories " + failedCategories + " results", failures.get(0));
+      failures.stream().skip(1).forEach(closeException::addSuppressed);
+      throw closeException;
+    }
+  }
+
+  private class CategoryWriter implements Runnable {
+
+    private final String category;
+    private final Set<String> categoryHeader;
+    private final String path;
+    private final BlockingQueue<List<SimplifiedLabel>> queue =
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    // batch being filled by the producers.
+    private List<SimplifiedLabel> pending = new ArrayList<>(BATCH_SIZE);
+    private volatile IOException failure;
+    private volatile long count;
+
+    CategoryWriter(String category, Set<String> categoryHeader) {
+      this.category = category;
+      this.categoryHeader = categoryHeader;
+      this.path = categoryOutputPath(outputCsvPath, category, format);
+      this.thread = new Thread(this, "result-writer-" + category);
+      thread.start();
+    }
+
+    /**
+     * Queue the batch, or drop it if the writer failed.
+     */
+    void submit(List<SimplifiedLabel> batch) throws IOException {
+      try {
+        // don't wait forever on a writer that died.
+        while (failure == null) {
+          if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing category '" + category + "'", e);
+      }
+    }
+
+    void await() throws IOException {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing category '" + category + "'", e);
+      }
+    }
+
+    private void fail(IOException e) {
+      // set first: producers stop waiting on this writer even if logging fails.
+      failure = e;
+      logger.error("Could not save category '{}' results to '{}', dropping them", category, path,
+          e);
+    }
+
+    @Override
+    public void run() {
+      ResultEncoder encoder = format.newEncoder(csvSeparator);
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+      try (OutputStream out = Files.newOutputStream(Paths.get(path))) {
+        encoder.begin(header(categoryHeader), buffer);
+
+        List<List<String>> rows = new ArrayList<>(BATCH_SIZE);
+        for (List<SimplifiedLabel> batch = queue.take(); batch != END; batch = queue.take()) {
+          rows.clear();
+          for (SimplifiedLabel label : batch) {
+            rows.add(record(label, categoryHeader));
+          }
+          encoder.encode(rows, buffer);
+          count += batch.size();
+          if (buffer.size() >= BUFFER_SIZE) {
+            buffer.writeTo(out);
+            buffer.reset();
+          }
+        }
+
+        encoder.end(buffer);
+        buffer.writeTo(out);
+      } catch (IOException e) {
+        fail(e);
+      } catch (InterruptedException e) {
+        fail(new IOException("Interrupted while writing category '" + category + "'", e));
+      } catch (RuntimeException e) {
+        fail(new IOException("Could not write category '" + category + "'", e));
+      } catch (Error e) {
+        // the thread dies anyway: let producers and close() know first.
+        fail(new IOException("Could not write category '" + category + "'", e));
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.tmilar.labelsimplification;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compact binary columnar format, for bulk loaders. Big-endian, strings as UTF-8 bytes prefixed by
+ * their int length (-1 for null values):
+ *
+ * <pre>
+ * file:   "LSCOL" version:byte(1) columnsCount:int columnName:string* block* end:int(0)
+ * block:  rowsCount:int column*     (each column holds rowsCount values)
+ * column: value:string*
+ * </pre>
+ */
+public class ColumnarResultEncoder implements ResultEncoder {
+
+  private static final byte[] MAGIC = "LSCOL".getBytes(StandardCharsets.US_ASCII);
+  private static final int VERSION = 1;
+
+  private int columnsCount;
+
+  @Override
+  public void begin(List<String> columns, OutputStream out) throws IOException {
+    columnsCount = columns.size();
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(MAGIC);
+    data.writeByte(VERSION);
+    data.writeInt(columnsCount);
+    for (String column : columns) {
+      writeString(data, column);
+    }
+    data.flush();
+  }
+
+  @Override
+  public void encode(List<List<String>> rows, OutputStream out) throws IOException {
+    if (rows.isEmpty()) {
+      return; // an empty block would read as the end of the file
+    }
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(rows.size());
+    for (int column = 0; column < columnsCount; column++) {
+      for (List<String> row : rows) {
+        writeString(data, row.get(column));
+      }
+    }
+    data.flush();
+  }
+
+  @Override
+  public void end(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(0);
+    data.flush();
+  }
+
+  private static void writeString(DataOutputStream data, String value) throws IOException {
+    if (value == null) {
+      data.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+}
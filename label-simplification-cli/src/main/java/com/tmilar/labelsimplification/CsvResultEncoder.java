@@ -0,0 +1,44 @@
+package com.tmilar.labelsimplification;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * UTF-8 csv, with the column names as header row.
+ */
+public class CsvResultEncoder implements ResultEncoder {
+
+  private final CSVFormat csvFormat;
+
+  public CsvResultEncoder(char csvSeparator) {
+    this.csvFormat = CSVFormat.DEFAULT.withDelimiter(csvSeparator);
+  }
+
+  @Override
+  public void begin(List<String> columns, OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    new CSVPrinter(writer, csvFormat).printRecord(columns);
+    writer.flush();
+  }
+
+  @Override
+  public void encode(List<List<String>> rows, OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    // the printer is not closed, it would close the output.
+    CSVPrinter printer = new CSVPrinter(writer, csvFormat);
+    for (List<String> row : rows) {
+      printer.printRecord(row);
+    }
+    writer.flush();
+  }
+
+  @Override
+  public void end(OutputStream out) {
+  }
+}
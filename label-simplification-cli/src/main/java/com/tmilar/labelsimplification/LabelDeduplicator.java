@@ -0,0 +1,109 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Simplifies each distinct (category, label) of a batch only once, and fans the result out to
+ * every label of the batch, in the batch order.
+ *
+ * Grouping is done per batch (an input chunk), so memory stays bounded by the batch size for any
+ * input size. Duplicates across batches are left to the service labels cache.
+ */
+public class LabelDeduplicator {
+
+  private long labelsCount;
+  private long distinctCount;
+
+  private static final class Key {
+
+    private final String category;
+    private final String label;
+    private final int hash;
+
+    private Key(Label label) {
+      this.category = label.getCategory();
+      this.label = label.getLabel();
+      this.hash = 31 * Objects.hashCode(category) + Objects.hashCode(this.label);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash && Objects.equals(label, key.label)
+          && Objects.equals(category, key.category);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * @param labels     - the batch labels.
+   * @param simplifier - simplifies the distinct labels, returning the results in the same order.
+   * @return the simplified labels, by index of the batch labels. Duplicate labels share the same
+   *     result instance.
+   */
+  public List<SimplifiedLabel> simplify(List<Label> labels,
+      Function<List<Label>, List<SimplifiedLabel>> simplifier) {
+    Map<Key, Integer> distinctIndexes = new HashMap<>(labels.size() * 2);
+    List<Label> distinct = new ArrayList<>();
+    int[] labelDistinctIndexes = new int[labels.size()];
+    for (int i = 0; i < labels.size(); i++) {
+      Label label = labels.get(i);
+      Integer index = distinctIndexes.putIfAbsent(new Key(label), distinct.size());
+      if (index == null) {
+        index = distinct.size();
+        distinct.add(label);
+      }
+      labelDistinctIndexes[i] = index;
+    }
+
+    List<SimplifiedLabel> distinctResults = simplifier.apply(distinct);
+    List<SimplifiedLabel> results = new ArrayList<>(labels.size());
+    for (int index : labelDistinctIndexes) {
+      results.add(distinctResults.get(index));
+    }
+
+    synchronized (this) {
+      labelsCount += labels.size();
+      distinctCount += distinct.size();
+    }
+    return results;
+  }
+
+  public synchronized long getLabelsCount() {
+    return labelsCount;
+  }
+
+  public synchronized long getDistinctCount() {
+    return distinctCount;
+  }
+
+  /**
+   * @return share of the labels that were duplicates, so not simplified again: 0 to 1.
+   */
+  public synchronized double getDedupRatio() {
+    return labelsCount == 0 ? 0 : 1 - (double) distinctCount / labelsCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%d labels, %d distinct (dedup ratio %.1f%%)", labelsCount,
+        distinctCount, getDedupRatio() * 100);
+  }
+}
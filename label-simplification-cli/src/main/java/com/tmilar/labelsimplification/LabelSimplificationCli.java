@@ -3,27 +3,42 @@ package com.tmilar.labelsimplification;
 import com.tmilar.labelsimplification.model.Extractor;
 import com.tmilar.labelsimplification.model.Label;
 import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.CategoryMetrics;
+import com.tmilar.labelsimplification.service.ExtractorMetrics;
+import com.tmilar.labelsimplification.service.InMemorySimplificationMetrics;
+import com.tmilar.labelsimplification.service.IncrementalSimplifier;
 import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import com.tmilar.labelsimplification.service.MetricsSnapshot;
+import com.tmilar.labelsimplification.service.RegexBudget;
+import com.tmilar.labelsimplification.service.RegexBudgetViolation;
+import com.tmilar.labelsimplification.service.ReloadResult;
+import com.tmilar.labelsimplification.service.RemainderMode;
+import com.tmilar.labelsimplification.service.SimplificationState;
+import com.tmilar.labelsimplification.service.StaleRulesSnapshotException;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,62 +49,419 @@ public class LabelSimplificationCli {
   private static final String CSV_SEPARATOR = ",";
 
   public static void main(String[] args) throws IOException {
-    String labelsInputCsvPath = "/data/input_items.csv";
+    CliOptions options = new CliOptions(args);
+    String labelsInputCsvPath = options.get("input", "/data/input_items.csv");
     String labelStrColName = "Description";
     String labelCatColName = "Category";
-    String rulesCsvPath = "/data/input_rules.csv";
-    String outputCsvPath = "./out/items_simplified.csv";
-    String stopwordsCsvPath = "/data/stop_words.csv";
+    String rulesCsvPath = options.get("rules", "/data/input_rules.csv");
+    String outputCsvPath = options.get("output", "./out/items_simplified.csv");
+    String stopwordsCsvPath = options.get("stopwords", "/data/stop_words.csv");
+    // 'streaming' reads & writes the labels one by one, 'in-memory' loads them all first.
+    String mode = options.get("mode", "streaming");
+    // input files (not classpath resources) are read memory-mapped, in chunks parsed in parallel.
+    long inputChunkSize = (long) options.getInt("input-chunk-mb", 32) << 20;
+    // category output files format: 'csv', 'ndjson' or 'columnar'.
+    ResultFormat format = ResultFormat.parse(options.get("format", "csv"));
+    // batch modes simplify each distinct (category, label) of an input chunk only once.
+    LabelDeduplicator deduplicator = Boolean.parseBoolean(options.get("dedup", "true"))
+        ? new LabelDeduplicator() : null;
+
+    LabelSimplificationService labelSimplificationService = new LabelSimplificationService();
+    labelSimplificationService.setCacheMaximumSize(options.getInt("cache-size", 0));
+    // 'matched-substrings' keeps the legacy remainders, removing every occurrence of the matches.
+    labelSimplificationService.setRemainderMode(
+        RemainderMode.parse(options.get("remainder-mode", "match-offsets")));
+    InMemorySimplificationMetrics metrics = options.isEnabled("metrics")
+        ? new InMemorySimplificationMetrics() : null;
+    labelSimplificationService.setMetrics(metrics);
+    // incremental runs need every matched path: no early exit.
+    boolean incrementalRun = options.has("incremental-state");
+    if (incrementalRun && options.isEnabled("early-exit")) {
+      logger.warn("--early-exit is ignored with --incremental-state");
+    }
+    labelSimplificationService.setEarlyExit(options.isEnabled("early-exit") && !incrementalRun);
+    labelSimplificationService.setRegexBudget(new RegexBudget(
+        options.getInt("regex-step-budget", (int) RegexBudget.UNLIMITED),
+        options.isEnabled("quarantine-regexes")));
+
+    if (options.has("compile-rules")) {
+      // compile rules command: only save the rules snapshot.
+      Path snapshotPath = Paths.get(options.get("compile-rules", null));
+      loadRulesFromCsv(labelSimplificationService, rulesCsvPath, stopwordsCsvPath);
+      labelSimplificationService.saveRules(snapshotPath,
+          sourceRulesChecksum(rulesCsvPath, stopwordsCsvPath));
+      logger.info("Saved rules snapshot to '{}'", snapshotPath);
+      return;
+    }
 
     // initialize labelSimplificationService with extraction rules + stop words
+    if (options.has("rules-snapshot")) {
+      Path snapshotPath = Paths.get(options.get("rules-snapshot", null));
+      loadRulesFromSnapshot(labelSimplificationService, snapshotPath, rulesCsvPath,
+          stopwordsCsvPath);
+    } else {
+      loadRulesFromCsv(labelSimplificationService, rulesCsvPath, stopwordsCsvPath);
+    }
+
+    if (options.has("explain")) {
+      // explain command: only trace the simplification of the given label.
+      Label label = new Label(options.get("explain", ""), options.get("category", null));
+      logger.info("Explain label simplification:\n{}",
+          labelSimplificationService.explainLabel(label));
+      return;
+    }
+
+    // incremental: reuse the previous run results of the labels the rules changes can't affect.
+    Path statePath = incrementalRun ? Paths.get(options.get("incremental-state", null)) : null;
+    IncrementalSimplifier incremental = incrementalRun
+        ? startIncrementalRun(labelSimplificationService, statePath) : null;
+    Function<List<Label>, List<SimplifiedLabel>> batchSimplifier = incremental != null
+        ? incremental::simplifyAll : labelSimplificationService::simplifyAll;
+    Function<List<Label>, List<SimplifiedLabel>> simplifier = deduplicator != null
+        ? labels -> deduplicator.simplify(labels, batchSimplifier) : batchSimplifier;
+
+    // the incremental state must hold the results of one rules version only.
+    if (incrementalRun && options.isEnabled("watch-rules")) {
+      logger.warn("--watch-rules is ignored with --incremental-state");
+    }
+    RulesFileWatcher rulesFileWatcher = options.isEnabled("watch-rules") && !incrementalRun
+        ? watchRulesFiles(labelSimplificationService, rulesCsvPath, stopwordsCsvPath) : null;
+
+    try {
+      if (Objects.equals(mode, "in-memory")) {
+        simplifyInMemory(labelSimplificationService, labelsInputCsvPath, labelStrColName,
+            labelCatColName, outputCsvPath, format, inputChunkSize, simplifier);
+      } else if (isClasspathResource(labelsInputCsvPath)) {
+        simplifyStreaming(labelSimplificationService, labelsInputCsvPath, labelStrColName,
+            labelCatColName, outputCsvPath, format, incremental);
+      } else {
+        simplifyChunks(labelSimplificationService, labelsInputCsvPath, labelStrColName,
+            labelCatColName, outputCsvPath, format, inputChunkSize, simplifier);
+      }
+    } finally {
+      if (rulesFileWatcher != null) {
+        rulesFileWatcher.close();
+      }
+    }
+
+    if (incremental != null) {
+      incremental.getState().write(statePath);
+      logger.info("Incremental run: {} labels reused, {} simplified. Saved state of {} labels to "
+              + "'{}'", incremental.getReusedCount(), incremental.getSimplifiedCount(),
+          incremental.getState().size(), statePath);
+    }
+    if (deduplicator != null && deduplicator.getLabelsCount() > 0) {
+      logger.info("Labels dedup: {}", deduplicator);
+    }
+    if (options.has("cache-size")) {
+      logger.info("Labels cache: {}", labelSimplificationService.getCacheStats());
+    }
+    if (metrics != null) {
+      logMetricsReport(metrics.snapshot(), options.getInt("metrics-top", 20));
+    }
+    List<RegexBudgetViolation> violations = labelSimplificationService
+        .getRegexBudgetViolations();
+    if (!violations.isEmpty()) {
+      logger.warn("{} rules exceeded the regex step budget, {} evaluations counted as not"
+              + " matched:", violations.size(),
+          violations.stream().mapToLong(RegexBudgetViolation::getCount).sum());
+      violations.forEach(violation -> logger.warn("  {}", violation));
+    }
+  }
+
+  /**
+   * Log the metrics summary: per category latencies, and the most expensive extractors.
+   */
+  private static void logMetricsReport(MetricsSnapshot snapshot, int topExtractors) {
+    logger.info("Simplification metrics, by category:");
+    for (CategoryMetrics category : snapshot.getCategories()) {
+      logger.info("  '{}': {} labels, {} extractor evaluations ({} hit ratio), per label {}",
+          category.getCategory(), category.getLabels(), category.getEvaluations(),
+          String.format("%.3f", category.getHitRatio()), category.getLabelLatency());
+    }
+
+    List<ExtractorMetrics> extractors = snapshot.getExtractors();
+    logger.info("Top {} (of {}) extractors, by total evaluation time:",
+        Math.min(topExtractors, extractors.size()), extractors.size());
+    for (ExtractorMetrics extractor : extractors.subList(0,
+        Math.min(topExtractors, extractors.size()))) {
+      logger.info("  {} '{}': total {}ms, {} evaluations ({} hit ratio), per evaluation {}",
+          extractor.getCategory(), extractor.getPath(),
+          extractor.getLatency().getTotalNanos() / 1_000_000, extractor.getEvaluations(),
+          String.format("%.3f", extractor.getHitRatio()), extractor.getLatency());
+    }
+  }
+
+  private static void loadRulesFromCsv(LabelSimplificationService labelSimplificationService,
+      String rulesCsvPath, String stopwordsCsvPath) throws IOException {
     List<Extractor> extractionRules = readExtractionRulesFromCsv(rulesCsvPath, CSV_SEPARATOR);
     Map<String, List<String>> categoryStopWords = readStopWordsFromCsv(stopwordsCsvPath,
         CSV_SEPARATOR);
 
-    LabelSimplificationService labelSimplificationService = new LabelSimplificationService();
     labelSimplificationService.load(extractionRules, categoryStopWords);
     logger.info("Loaded {} label rules from '{}'", extractionRules.size(), rulesCsvPath);
+  }
 
-    // initialize input labels
-    List<Label> labels = readLabelsFromCsv(
-        labelsInputCsvPath, CSV_SEPARATOR, labelStrColName, labelCatColName);
+  /**
+   * Load the rules from the snapshot file if it's up to date with the source csvs. Otherwise load
+   * them from the csvs, and (re)write the snapshot for the next runs.
+   */
+  private static void loadRulesFromSnapshot(LabelSimplificationService labelSimplificationService,
+      Path snapshotPath, String rulesCsvPath, String stopwordsCsvPath) throws IOException {
+    String sourceChecksum = sourceRulesChecksum(rulesCsvPath, stopwordsCsvPath);
 
-    Map<String, Set<String>> categoryMappings = labelSimplificationService.getCategoryMappings();
+    if (Files.exists(snapshotPath)) {
+      try {
+        ReloadResult reloadResult = labelSimplificationService
+            .loadRules(snapshotPath, sourceChecksum);
+        logger.info("Loaded rules snapshot '{}': {}", snapshotPath, reloadResult);
+        return;
+      } catch (StaleRulesSnapshotException e) {
+        logger.info("Rebuilding rules snapshot '{}': {}", snapshotPath, e.getMessage());
+      }
+    }
 
-    logger.info("Processing {} labels from '{}'...", labels.size(), labelsInputCsvPath);
+    loadRulesFromCsv(labelSimplificationService, rulesCsvPath, stopwordsCsvPath);
+    labelSimplificationService.saveRules(snapshotPath, sourceChecksum);
+    logger.info("Saved rules snapshot to '{}'", snapshotPath);
+  }
 
-    // output (one export per category)
-    categoryMappings.forEach((category, categoryHeader) -> {
-      List<SimplifiedLabel> simplifiedLabels = labels.stream()
-          .filter(label -> Objects.equals(label.getCategory(), category))
-          .map(labelSimplificationService::simplifyLabel)
-          .collect(Collectors.toList());
-
-      if (simplifiedLabels.isEmpty()) {
-        logger.info("Skip save export for category '{}' "
-            + "(no labels simplified belong to this category)", category);
-        return;
+  /**
+   * @return SHA-256 (hex) of the rules and stop words csvs contents.
+   */
+  private static String sourceRulesChecksum(String... csvPaths) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    byte[] buffer = new byte[8192];
+    for (String csvPath : csvPaths) {
+      try (InputStream csvStream = openCsvStream(csvPath)) {
+        int read;
+        while ((read = csvStream.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
       }
+      // separate the files, so moving lines from one to the other changes the checksum.
+      digest.update((byte) 0);
+    }
 
-      String categoryCsvPath = outputCsvPath.replace(".csv", String.format("_%s.csv", category));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
 
+  /**
+   * Start an incremental run from the state file of the previous run. Without a readable state
+   * file, every label is simplified (and the state file written for the next run).
+   */
+  private static IncrementalSimplifier startIncrementalRun(
+      LabelSimplificationService labelSimplificationService, Path statePath) {
+    SimplificationState previous = null;
+    if (Files.exists(statePath)) {
       try {
-        writeResultToCsv(simplifiedLabels, categoryHeader, categoryCsvPath, CSV_SEPARATOR);
+        previous = SimplificationState.read(statePath);
       } catch (IOException e) {
-        logger.error("Could not save '{}' labels '{}' category to csv '{}'",
-            simplifiedLabels, category, categoryCsvPath, e);
-        return;
+        logger.warn("Could not read simplification state '{}', simplifying every label: {}",
+            statePath, e.getMessage());
+      }
+    }
+
+    IncrementalSimplifier incremental = new IncrementalSimplifier(labelSimplificationService,
+        previous);
+    if (previous != null) {
+      logger.info("Rules changes since the simplification state '{}' ({} labels): {}", statePath,
+          previous.size(), incremental.getDiff());
+    }
+    return incremental;
+  }
+
+  /**
+   * Reload the rules into the service each time the rules or stop words csv files change.
+   * Only files can be watched, not classpath resources.
+   */
+  private static RulesFileWatcher watchRulesFiles(
+      LabelSimplificationService labelSimplificationService, String rulesCsvPath,
+      String stopwordsCsvPath) throws IOException {
+
+    List<Path> files = new ArrayList<>();
+    for (String csvPath : Arrays.asList(rulesCsvPath, stopwordsCsvPath)) {
+      if (isClasspathResource(csvPath)) {
+        logger.warn("Can't watch '{}' for changes, it's a classpath resource", csvPath);
+      } else {
+        files.add(Paths.get(csvPath));
       }
-      logger.info("Saved category '{}' {} results to: '{}'",
-          category, simplifiedLabels.size(), categoryCsvPath);
+    }
+    if (files.isEmpty()) {
+      return null;
+    }
+
+    return new RulesFileWatcher(files, () -> {
+      List<Extractor> extractionRules = readExtractionRulesFromCsv(rulesCsvPath, CSV_SEPARATOR);
+      Map<String, List<String>> categoryStopWords = readStopWordsFromCsv(stopwordsCsvPath,
+          CSV_SEPARATOR);
+      ReloadResult reloadResult = labelSimplificationService
+          .reload(extractionRules, categoryStopWords);
+      logger.info("Reloaded rules from '{}': {}", rulesCsvPath, reloadResult);
     });
   }
 
-  private static Map<String, List<String>> readStopWordsFromCsv(String csvPath, String csvSeparator)
+  /**
+   * Read the input labels one by one, and write each result to its category output csv as soon as
+   * it's simplified. The input is read once, and only the output writers are kept in memory.
+   */
+  private static void simplifyStreaming(LabelSimplificationService labelSimplificationService,
+      String labelsInputCsvPath, String labelStrColName, String labelCatColName,
+      String outputCsvPath, ResultFormat format, IncrementalSimplifier incremental)
       throws IOException {
+
+    Map<String, Set<String>> categoryMappings = labelSimplificationService.getCategoryMappings();
+
+    logger.info("Processing labels from '{}'...", labelsInputCsvPath);
+    int labelsCount = 0;
+
+    try (
+        Reader reader = openCsvReader(labelsInputCsvPath);
+        CSVParser csvParser = new CSVParser(reader,
+            CSVFormat.DEFAULT.withDelimiter(CSV_SEPARATOR.charAt(0)));
+        CategoryResultWriters categoryWriters = new CategoryResultWriters(categoryMappings,
+            outputCsvPath, CSV_SEPARATOR, format)
+    ) {
+      Iterator<CSVRecord> records = csvParser.iterator();
+      if (!records.hasNext()) {
+        return;
+      }
+
+      // get header row, to find the label field col index.
+      List<String> headerRow = new ArrayList<>();
+      records.next().iterator().forEachRemaining(headerRow::add);
+      int labelFieldColIndex = headerRow.indexOf(labelStrColName);
+      int categoryFieldColIndex = headerRow.indexOf(labelCatColName);
+
+      while (records.hasNext()) {
+        CSVRecord record = records.next();
+        labelsCount++;
+        Label label = new Label(record.get(labelFieldColIndex), record.get(categoryFieldColIndex));
+
+        if (!categoryMappings.containsKey(label.getCategory())) {
+          continue; // no export for unmapped categories
+        }
+
+        categoryWriters.write(label.getCategory(), incremental != null
+            ? incremental.simplifyAll(Collections.singletonList(label)).get(0)
+            : labelSimplificationService.simplifyLabel(label));
+      }
+    }
+
+    logger.info("Processed {} labels from '{}'", labelsCount, labelsInputCsvPath);
+  }
+
+  /**
+   * Streaming, for input files: read the labels chunk by chunk (memory-mapped, parsed in parallel
+   * ahead of the writes), simplify each chunk in parallel, and write the results in input order.
+   * Each chunk goes through the simplifier (deduplicated, incremental) as one batch.
+   */
+  private static void simplifyChunks(LabelSimplificationService labelSimplificationService,
+      String labelsInputCsvPath, String labelStrColName, String labelCatColName,
+      String outputCsvPath, ResultFormat format, long inputChunkSize,
+      Function<List<Label>, List<SimplifiedLabel>> simplifier) throws IOException {
+
+    Map<String, Set<String>> categoryMappings = labelSimplificationService.getCategoryMappings();
+    MappedCsvLabelReader reader = new MappedCsvLabelReader(Paths.get(labelsInputCsvPath),
+        CSV_SEPARATOR.charAt(0), labelStrColName, labelCatColName);
+    reader.setChunkSize(inputChunkSize);
+
+    logger.info("Processing labels from '{}'...", labelsInputCsvPath);
+    long labelsCount;
+
+    try (CategoryResultWriters categoryWriters = new CategoryResultWriters(categoryMappings,
+        outputCsvPath, CSV_SEPARATOR, format)) {
+      labelsCount = reader.read(labels -> {
+        // no export for unmapped categories
+        List<Label> mapped = labels.stream()
+            .filter(label -> categoryMappings.containsKey(label.getCategory()))
+            .collect(Collectors.toList());
+        List<SimplifiedLabel> simplifiedLabels = simplifier.apply(mapped);
+        for (int i = 0; i < mapped.size(); i++) {
+          categoryWriters.write(mapped.get(i).getCategory(), simplifiedLabels.get(i));
+        }
+      });
+    }
+
+    logger.info("Processed {} labels from '{}'", labelsCount, labelsInputCsvPath);
+  }
+
+  private static void simplifyInMemory(LabelSimplificationService labelSimplificationService,
+      String labelsInputCsvPath, String labelStrColName, String labelCatColName,
+      String outputCsvPath, ResultFormat format, long inputChunkSize,
+      Function<List<Label>, List<SimplifiedLabel>> simplifier) throws IOException {
+
+    // initialize input labels
+    List<Label> labels;
+    if (isClasspathResource(labelsInputCsvPath)) {
+      labels = readLabelsFromCsv(
+          labelsInputCsvPath, CSV_SEPARATOR, labelStrColName, labelCatColName);
+    } else {
+      MappedCsvLabelReader reader = new MappedCsvLabelReader(Paths.get(labelsInputCsvPath),
+          CSV_SEPARATOR.charAt(0), labelStrColName, labelCatColName);
+      reader.setChunkSize(inputChunkSize);
+      labels = reader.readAll();
+    }
+
+    Map<String, Set<String>> categoryMappings = labelSimplificationService.getCategoryMappings();
+
+    logger.info("Processing {} labels from '{}'...", labels.size(), labelsInputCsvPath);
+
+    // output (one export per category)
+    try (CategoryResultWriters categoryWriters = new CategoryResultWriters(categoryMappings,
+        outputCsvPath, CSV_SEPARATOR, format)) {
+      for (String category : categoryMappings.keySet()) {
+        List<Label> categoryLabels = labels.stream()
+            .filter(label -> Objects.equals(label.getCategory(), category))
+            .collect(Collectors.toList());
+        List<SimplifiedLabel> simplifiedLabels = simplifier.apply(categoryLabels);
+
+        if (simplifiedLabels.isEmpty()) {
+          logger.info("Skip save export for category '{}' "
+              + "(no labels simplified belong to this category)", category);
+          continue;
+        }
+
+        for (SimplifiedLabel simplifiedLabel : simplifiedLabels) {
+          categoryWriters.write(category, simplifiedLabel);
+        }
+      }
+    }
+  }
+
+  /**
+   * Open a csv by its path: a classpath resource if there's one, otherwise a file.
+   */
+  private static Reader openCsvReader(String csvPath) throws IOException {
+    return new BufferedReader(
+        new InputStreamReader(openCsvStream(csvPath), StandardCharsets.UTF_8));
+  }
+
+  private static boolean isClasspathResource(String csvPath) {
+    return LabelSimplificationCli.class.getResource(csvPath) != null;
+  }
+
+  private static InputStream openCsvStream(String csvPath) throws IOException {
     InputStream csvResource = LabelSimplificationCli.class.getResourceAsStream(csvPath);
+    if (csvResource == null) {
+      return Files.newInputStream(Paths.get(csvPath));
+    }
+    return csvResource;
+  }
 
-    Reader bufferedReader = new BufferedReader(new InputStreamReader(csvResource));
+  private static Map<String, List<String>> readStopWordsFromCsv(String csvPath, String csvSeparator)
+      throws IOException {
+    Reader bufferedReader = openCsvReader(csvPath);
 
     CSVParser csvParser = new CSVParser(bufferedReader,
         CSVFormat.DEFAULT.withDelimiter(csvSeparator.toCharArray()[0]));
@@ -129,9 +501,7 @@ public class LabelSimplificationCli {
       String labelField, String categoryField)
       throws IOException {
 
-    InputStream csvResource = LabelSimplificationCli.class.getResourceAsStream(csvPath);
-
-    Reader bufferedReader = new BufferedReader(new InputStreamReader(csvResource));
+    Reader bufferedReader = openCsvReader(csvPath);
 
     CSVParser csvParser = new CSVParser(bufferedReader,
         CSVFormat.DEFAULT.withDelimiter(csvSeparator.toCharArray()[0]));
@@ -169,9 +539,7 @@ public class LabelSimplificationCli {
   private static List<Extractor> readExtractionRulesFromCsv(String csvPath, String csvSeparator)
       throws IOException {
 
-    InputStream csvResource = LabelSimplificationCli.class.getResourceAsStream(csvPath);
-
-    Reader bufferedReader = new BufferedReader(new InputStreamReader(csvResource));
+    Reader bufferedReader = openCsvReader(csvPath);
 
     CSVParser csvParser = new CSVParser(bufferedReader,
         CSVFormat.DEFAULT.withDelimiter(csvSeparator.toCharArray()[0]));
@@ -198,39 +566,4 @@ public class LabelSimplificationCli {
 
     return extractors;
   }
-
-  /**
-   * Write simplified labels result to an output CSV file.
-   *
-   * @param simplifiedLabels - the labels simplified
-   * @param outputCsvPath    - csv path to write to
-   * @param csvSeparator     - separator to use
-   * @throws IOException - exception if path doesn't exist or inaccessible
-   */
-  private static void writeResultToCsv(List<SimplifiedLabel> simplifiedLabels,
-      Set<String> categoryHeader, String outputCsvPath, String csvSeparator) throws IOException {
-
-    List<String> header = new LinkedList<>(Arrays.asList("OriginalItem", "CatalogItem"));
-    header.addAll(categoryHeader);
-
-    try (
-        BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputCsvPath));
-
-        CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-            .withHeader(header.toArray(new String[0]))
-            .withDelimiter(csvSeparator.charAt(0)));
-    ) {
-
-      for (SimplifiedLabel label : simplifiedLabels) {
-        List<String> record = new LinkedList<>(
-            Arrays.asList(label.getLabel(), label.getSimplifiedLabel()));
-        Map<String, String> extractedValuesMap = label.getExtractedValuesMap();
-        categoryHeader.forEach(catHeader -> record.add(extractedValuesMap.get(catHeader)));
-
-        csvPrinter.printRecord(record);
-      }
-
-      csvPrinter.flush();
-    }
-  }
 }
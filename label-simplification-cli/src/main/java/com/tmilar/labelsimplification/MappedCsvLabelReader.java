@@ -0,0 +1,234 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.Label;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads the labels of a (large) UTF-8 csv file, memory-mapped and parsed in parallel chunks.
+ *
+ * One sequential pass over the raw bytes splits the file into chunks of about
+ * {@link #setChunkSize(long) chunkSize} bytes, each ending at a record end: a line feed outside of
+ * any quoted field. Fields are tracked the way the commons-csv lexer reads them: a quote opens a
+ * quoted field only at the field start, {@code ""} is an escaped quote inside it, and quotes in
+ * unquoted fields are plain chars. Neither quotes, separators nor line breaks can be part of a
+ * multi-byte UTF-8 char, so no decoding is needed to split (files with a non US-ASCII separator
+ * are read as one chunk). Then each chunk is decoded and parsed by its own task, and the header
+ * columns are looked up only once.
+ */
+public class MappedCsvLabelReader {
+
+  private static final long DEFAULT_CHUNK_SIZE = 32L << 20;
+  // bytes mapped at once by the sequential split pass.
+  private static final long SPLIT_WINDOW_SIZE = 256L << 20;
+
+  // split pass states, at each byte.
+  private static final int FIELD_START = 0;
+  private static final int UNQUOTED = 1;
+  private static final int QUOTED = 2;
+  // a quote inside a quoted field: the closing one, or the first of an escaped "".
+  private static final int QUOTED_QUOTE = 3;
+
+  private final Path file;
+  private final char csvSeparator;
+  private final CSVFormat csvFormat;
+  private final String labelField;
+  private final String categoryField;
+  private long chunkSize = DEFAULT_CHUNK_SIZE;
+  private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+  /**
+   * Receives the labels of each chunk, in file order.
+   */
+  public interface ChunkConsumer {
+
+    void accept(List<Label> labels) throws IOException;
+  }
+
+  public MappedCsvLabelReader(Path file, char csvSeparator, String labelField,
+      String categoryField) {
+    this.file = file;
+    this.csvSeparator = csvSeparator;
+    this.csvFormat = CSVFormat.DEFAULT.withDelimiter(csvSeparator);
+    this.labelField = labelField;
+    this.categoryField = categoryField;
+  }
+
+  /**
+   * @param chunkSize - approximate bytes per chunk, parsed by one task.
+   */
+  public void setChunkSize(long chunkSize) {
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  /**
+   * @return every label of the file, in file order.
+   */
+  public List<Label> readAll() throws IOException {
+    List<Label> labels = new ArrayList<>();
+    read(labels::addAll);
+    return labels;
+  }
+
+  /**
+   * Parse the chunks in parallel, and give each one to the consumer in file order. Only a few
+   * chunks are parsed ahead of the consumer, so memory stays bounded for any file size.
+   *
+   * @return the labels count.
+   */
+  public long read(ChunkConsumer consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] boundaries = split(channel);
+      if (boundaries.length < 2) {
+        return 0; // empty file
+      }
+      int[] columns = headerColumns(channel, boundaries[1]);
+
+      int window = forkJoinPool.getParallelism() + 1;
+      Deque<Future<List<Label>>> parsing = new ArrayDeque<>();
+      long labelsCount = 0;
+      int nextChunk = 1;
+      while (nextChunk < boundaries.length - 1 || !parsing.isEmpty()) {
+        while (nextChunk < boundaries.length - 1 && parsing.size() < window) {
+          long start = boundaries[nextChunk];
+          long end = boundaries[nextChunk + 1];
+          parsing.add(forkJoinPool.submit(() -> parseChunk(channel, start, end, columns)));
+          nextChunk++;
+        }
+        List<Label> labels = await(parsing.poll());
+        labelsCount += labels.size();
+        consumer.accept(labels);
+      }
+      return labelsCount;
+    }
+  }
+
+  /**
+   * @return chunk boundaries: the header record is the first chunk, and the last boundary is the
+   *     file size.
+   */
+  private long[] split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    List<Long> boundaries = new ArrayList<>();
+    if (size == 0) {
+      return new long[0];
+    }
+    boundaries.add(0L);
+
+    if (csvSeparator >= 0x80) {
+      boundaries.add(size);
+      return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    int state = FIELD_START;
+    boolean headerRead = false;
+    long nextBoundary = 0;
+    for (long windowStart = 0; windowStart < size; windowStart += SPLIT_WINDOW_SIZE) {
+      int windowSize = (int) Math.min(SPLIT_WINDOW_SIZE, size - windowStart);
+      MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowSize);
+      for (int i = 0; i < windowSize; i++) {
+        byte b = window.get(i);
+        if (state == QUOTED) {
+          if (b == '"') {
+            state = QUOTED_QUOTE;
+          }
+          continue;
+        }
+        if (state == QUOTED_QUOTE && b == '"') {
+          state = QUOTED; // escaped quote.
+        } else if (b == csvSeparator || b == '\r') {
+          state = FIELD_START;
+        } else if (b == '\n') {
+          state = FIELD_START;
+          long recordEnd = windowStart + i + 1;
+          if (!headerRead || recordEnd >= nextBoundary) {
+            boundaries.add(recordEnd);
+            headerRead = true;
+            nextBoundary = recordEnd + chunkSize;
+          }
+        } else if (state == FIELD_START && b == '"') {
+          state = QUOTED;
+        } else {
+          state = UNQUOTED;
+        }
+      }
+    }
+    if (boundaries.get(boundaries.size() - 1) != size) {
+      boundaries.add(size);
+    }
+    return boundaries.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * @return the label and category column indexes.
+   */
+  private int[] headerColumns(FileChannel channel, long headerEnd) throws IOException {
+    try (CSVParser parser = new CSVParser(decode(channel, 0, headerEnd), csvFormat)) {
+      List<String> header = new ArrayList<>();
+      for (CSVRecord record : parser) {
+        record.iterator().forEachRemaining(header::add);
+        break;
+      }
+      int[] columns = {header.indexOf(labelField), header.indexOf(categoryField)};
+      if (columns[0] < 0 || columns[1] < 0) {
+        throw new IOException(String.format("Columns '%s' and '%s' not found in '%s' header: %s",
+            labelField, categoryField, file, header));
+      }
+      return columns;
+    }
+  }
+
+  private List<Label> parseChunk(FileChannel channel, long start, long end, int[] columns)
+      throws IOException {
+    List<Label> labels = new ArrayList<>();
+    try (CSVParser parser = new CSVParser(decode(channel, start, end), csvFormat)) {
+      for (CSVRecord record : parser) {
+        labels.add(new Label(record.get(columns[0]), record.get(columns[1])));
+      }
+    }
+    return labels;
+  }
+
+  private static CharArrayReader decode(FileChannel channel, long start, long end)
+      throws IOException {
+    MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, start, end - start);
+    CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+    return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(),
+        chars.remaining());
+  }
+
+  private static List<Label> await(Future<List<Label>> chunk) throws IOException {
+    try {
+      return chunk.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing labels", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Could not parse labels chunk", e.getCause());
+    }
+  }
+}
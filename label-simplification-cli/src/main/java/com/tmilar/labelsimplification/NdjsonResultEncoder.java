@@ -0,0 +1,83 @@
+package com.tmilar.labelsimplification;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Newline-delimited JSON: one object per line, with the column names as keys and null for
+ * missing values. No header line.
+ */
+public class NdjsonResultEncoder implements ResultEncoder {
+
+  // column names, already quoted and followed by ':'.
+  private String[] keys;
+
+  @Override
+  public void begin(List<String> columns, OutputStream out) {
+    keys = new String[columns.size()];
+    for (int i = 0; i < keys.length; i++) {
+      StringBuilder key = new StringBuilder();
+      appendString(key, columns.get(i));
+      keys[i] = key.append(':').toString();
+    }
+  }
+
+  @Override
+  public void encode(List<List<String>> rows, OutputStream out) throws IOException {
+    StringBuilder json = new StringBuilder(rows.size() * 128);
+    for (List<String> row : rows) {
+      json.append('{');
+      for (int i = 0; i < keys.length; i++) {
+        if (i > 0) {
+          json.append(',');
+        }
+        json.append(keys[i]);
+        String value = row.get(i);
+        if (value == null) {
+          json.append("null");
+        } else {
+          appendString(json, value);
+        }
+      }
+      json.append("}\n");
+    }
+    out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void end(OutputStream out) {
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+}
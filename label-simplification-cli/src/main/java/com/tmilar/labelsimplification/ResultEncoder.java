@@ -0,0 +1,31 @@
+package com.tmilar.labelsimplification;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Encodes the results of one category output file, in batches. Not thread-safe: each output file
+ * has its own encoder.
+ */
+public interface ResultEncoder {
+
+  /**
+   * Write the file header.
+   *
+   * @param columns - output column names.
+   */
+  void begin(List<String> columns, OutputStream out) throws IOException;
+
+  /**
+   * Write a batch of results.
+   *
+   * @param rows - column values of each result, in columns order. Values may be null.
+   */
+  void encode(List<List<String>> rows, OutputStream out) throws IOException;
+
+  /**
+   * Write the file trailer, if any.
+   */
+  void end(OutputStream out) throws IOException;
+}
@@ -0,0 +1,47 @@
+package com.tmilar.labelsimplification;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the simplified labels, one file per category.
+ */
+public enum ResultFormat {
+
+  /**
+   * Csv with a header row, the CLI default.
+   */
+  CSV("csv"),
+  /**
+   * Newline-delimited JSON: one object per result, keyed by column name.
+   */
+  NDJSON("ndjson"),
+  /**
+   * Binary columnar blocks, see {@link ColumnarResultEncoder}.
+   */
+  COLUMNAR("lscol");
+
+  private final String extension;
+
+  ResultFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public ResultEncoder newEncoder(char csvSeparator) {
+    switch (this) {
+      case NDJSON:
+        return new NdjsonResultEncoder();
+      case COLUMNAR:
+        return new ColumnarResultEncoder();
+      default:
+        return new CsvResultEncoder(csvSeparator);
+    }
+  }
+
+  public static ResultFormat parse(String name) {
+    return valueOf(name.toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,112 @@
+package com.tmilar.labelsimplification;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches the rules (and stop words) csv files, and runs a reload action each time any of them
+ * changes. Runs on its own daemon thread until closed.
+ */
+public class RulesFileWatcher implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(RulesFileWatcher.class);
+
+  // wait for writes to settle before reloading, editors often save in several steps.
+  private static final long DEBOUNCE_MILLIS = 200;
+
+  /**
+   * Action to run when the rules files changed.
+   */
+  public interface ReloadAction {
+
+    void reload() throws IOException;
+  }
+
+  private final Set<Path> watchedFiles = new HashSet<>();
+  private final WatchService watchService;
+  private final ReloadAction reloadAction;
+  private final Thread watcherThread;
+
+  public RulesFileWatcher(List<Path> files, ReloadAction reloadAction) throws IOException {
+    this.reloadAction = reloadAction;
+    this.watchService = FileSystems.getDefault().newWatchService();
+
+    Set<Path> directories = new HashSet<>();
+    for (Path file : files) {
+      Path absolute = file.toAbsolutePath().normalize();
+      watchedFiles.add(absolute);
+      directories.add(absolute.getParent());
+    }
+    for (Path directory : directories) {
+      directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    this.watcherThread = new Thread(this::watch, "rules-file-watcher");
+    this.watcherThread.setDaemon(true);
+    this.watcherThread.start();
+    logger.info("Watching rules files {} for changes", watchedFiles);
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        boolean changed = pollChanged(key);
+
+        // drain the events of the following writes to the same files.
+        WatchKey nextKey;
+        while ((nextKey = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          changed |= pollChanged(nextKey);
+        }
+
+        if (changed) {
+          reload();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      logger.debug("Rules file watcher stopped");
+    }
+  }
+
+  private boolean pollChanged(WatchKey key) {
+    Path directory = (Path) key.watchable();
+    boolean changed = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      Object context = event.context();
+      if (context instanceof Path && watchedFiles.contains(directory.resolve((Path) context))) {
+        changed = true;
+      }
+    }
+    key.reset();
+    return changed;
+  }
+
+  private void reload() {
+    try {
+      reloadAction.reload();
+    } catch (Exception e) {
+      // keep the current rules, and keep watching for a fixed version.
+      logger.error("Could not reload rules files {}, keeping the current rules", watchedFiles, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    watcherThread.interrupt();
+  }
+}
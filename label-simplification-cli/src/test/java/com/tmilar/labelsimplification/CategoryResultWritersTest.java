@@ -0,0 +1,115 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CategoryResultWritersTest {
+
+  // more than a few batches per category.
+  private static final int LABELS_COUNT = 5000;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Map<String, Set<String>> categoryMappings() {
+    Map<String, Set<String>> categoryMappings = new LinkedHashMap<>();
+    categoryMappings.put("TCG", new LinkedHashSet<>(Collections.singletonList("Juego")));
+    categoryMappings.put("Toys", new LinkedHashSet<>(Collections.singletonList("Marca")));
+    return categoryMappings;
+  }
+
+  private static SimplifiedLabel result(String label, String key, String value) {
+    return new SimplifiedLabel(new Label(label), value + " " + label,
+        Collections.singletonMap(key, Collections.singletonList(Pair.of(null, value))));
+  }
+
+  private static void writeAll(CategoryResultWriters writers) throws IOException {
+    for (int i = 0; i < LABELS_COUNT; i++) {
+      writers.write("TCG", result("pkm " + i, "Juego", "Pokemon"));
+      writers.write("Toys", result("funko " + i, "Marca", "Funko"));
+    }
+  }
+
+  @Test
+  public void close_shouldWriteEveryResult_inWriteOrder() throws IOException {
+    String outputCsvPath = temporaryFolder.getRoot().toPath().resolve("out.csv").toString();
+
+    try (CategoryResultWriters writers = new CategoryResultWriters(categoryMappings(),
+        outputCsvPath, ",", ResultFormat.CSV)) {
+      writeAll(writers);
+    }
+
+    List<String> lines = Files.readAllLines(
+        Paths.get(CategoryResultWriters.categoryCsvPath(outputCsvPath, "Toys")),
+        StandardCharsets.UTF_8);
+    Assert.assertEquals(LABELS_COUNT + 1, lines.size());
+    Assert.assertEquals("OriginalItem,CatalogItem,Marca", lines.get(0));
+    Assert.assertEquals("funko 0,Funko funko 0,Funko", lines.get(1));
+    Assert.assertEquals("funko 4999,Funko funko 4999,Funko", lines.get(LABELS_COUNT));
+  }
+
+  @Test
+  public void close_shouldFailTheRun_afterWritingTheOtherCategories() throws IOException {
+    Path outputCsv = temporaryFolder.getRoot().toPath().resolve("out.csv");
+    // the TCG output path is a directory: its writer fails.
+    Files.createDirectory(Paths.get(
+        CategoryResultWriters.categoryCsvPath(outputCsv.toString(), "TCG")));
+
+    CategoryResultWriters writers = new CategoryResultWriters(categoryMappings(),
+        outputCsv.toString(), ",", ResultFormat.CSV);
+    writeAll(writers);
+    try {
+      writers.close();
+      Assert.fail("the TCG writer failure should fail the close");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("[TCG]"));
+    }
+
+    List<String> toysLines = Files.readAllLines(
+        Paths.get(CategoryResultWriters.categoryCsvPath(outputCsv.toString(), "Toys")),
+        StandardCharsets.UTF_8);
+    Assert.assertEquals(LABELS_COUNT + 1, toysLines.size());
+  }
+
+  @Test(timeout = 30_000)
+  public void write_shouldNotBlock_whenAWriterDiesOnAnError() throws IOException {
+    String outputCsvPath = temporaryFolder.getRoot().toPath().resolve("out.csv").toString();
+    SimplifiedLabel broken = new SimplifiedLabel(new Label("broken"), "broken") {
+      @Override
+      public String getExtractedValue(String key) {
+        throw new AssertionError("encoder bug");
+      }
+    };
+
+    CategoryResultWriters writers = new CategoryResultWriters(categoryMappings(),
+        outputCsvPath, ",", ResultFormat.CSV);
+    writers.write("TCG", broken);
+    // more batches than the writer queue holds.
+    for (int i = 0; i < 4 * LABELS_COUNT; i++) {
+      writers.write("TCG", result("pkm " + i, "Juego", "Pokemon"));
+    }
+    try {
+      writers.close();
+      Assert.fail("the TCG writer error should fail the close");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("[TCG]"));
+      Assert.assertTrue(e.getCause().getCause() instanceof AssertionError);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LabelDeduplicatorTest {
+
+  @Test
+  public void simplify_shouldSimplifyDistinctLabelsOnce_andFanOutInInputOrder() {
+    List<Label> labels = Arrays.asList(
+        new Label("Pkm SM1", "TCG"),
+        new Label("Funko", "Toys"),
+        new Label("Pkm SM1", "TCG"),
+        new Label("Pkm SM1", "Toys"),
+        new Label("Funko", "Toys"));
+    List<List<Label>> simplifierCalls = new ArrayList<>();
+
+    LabelDeduplicator deduplicator = new LabelDeduplicator();
+    List<SimplifiedLabel> results = deduplicator.simplify(labels, distinct -> {
+      simplifierCalls.add(distinct);
+      return distinct.stream()
+          .map(label -> new SimplifiedLabel(label, label.getCategory() + ":" + label.getLabel()))
+          .collect(Collectors.toList());
+    });
+
+    Assert.assertEquals(1, simplifierCalls.size());
+    Assert.assertEquals(Arrays.asList("TCG:Pkm SM1", "Toys:Funko", "Toys:Pkm SM1"),
+        simplifierCalls.get(0).stream().map(label -> label.getCategory() + ":" + label.getLabel())
+            .collect(Collectors.toList()));
+    Assert.assertEquals(
+        Arrays.asList("TCG:Pkm SM1", "Toys:Funko", "TCG:Pkm SM1", "Toys:Pkm SM1", "Toys:Funko"),
+        results.stream().map(SimplifiedLabel::getSimplifiedLabel).collect(Collectors.toList()));
+    Assert.assertSame(results.get(0), results.get(2));
+
+    Assert.assertEquals(5, deduplicator.getLabelsCount());
+    Assert.assertEquals(3, deduplicator.getDistinctCount());
+    Assert.assertEquals(0.4, deduplicator.getDedupRatio(), 1e-9);
+  }
+}
@@ -0,0 +1,101 @@
+package com.tmilar.labelsimplification;
+
+import com.tmilar.labelsimplification.model.Label;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedCsvLabelReaderTest {
+
+  private static final long[] CHUNK_SIZES = {1, 7, 64, 1 << 20};
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path write(String csv) throws IOException {
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /**
+   * @return the labels as commons-csv reads the whole file at once.
+   */
+  private static List<String> parseWhole(String csv, char separator) throws IOException {
+    List<String> labels = new ArrayList<>();
+    try (CSVParser parser = new CSVParser(new StringReader(csv),
+        CSVFormat.DEFAULT.withDelimiter(separator).withFirstRecordAsHeader())) {
+      for (CSVRecord record : parser) {
+        labels.add(record.get("Category") + "|" + record.get("Item"));
+      }
+    }
+    return labels;
+  }
+
+  private static List<String> read(Path file, char separator, long chunkSize)
+      throws IOException {
+    MappedCsvLabelReader reader = new MappedCsvLabelReader(file, separator, "Item", "Category");
+    reader.setChunkSize(chunkSize);
+    return reader.readAll().stream()
+        .map(label -> label.getCategory() + "|" + label.getLabel())
+        .collect(Collectors.toList());
+  }
+
+  private void assertSameLabelsAsCommonsCsv(String csv, char separator) throws IOException {
+    Path file = write(csv);
+    List<String> expected = parseWhole(csv, separator);
+    for (long chunkSize : CHUNK_SIZES) {
+      Assert.assertEquals("chunk size " + chunkSize, expected, read(file, separator, chunkSize));
+    }
+  }
+
+  @Test
+  public void read_shouldSplitAtRecordEnds_withStrayQuotesInUnquotedFields() throws IOException {
+    StringBuilder csv = new StringBuilder("Item,Category\n");
+    for (int i = 0; i < 51; i++) {
+      csv.append("Funko 5\" Pikachu ").append(i).append(",TCG\n");
+      csv.append("\"Booster\nbox ").append(i).append("\",TCG\n");
+    }
+    String content = csv.toString();
+    Assert.assertEquals(102, parseWhole(content, ',').size());
+
+    assertSameLabelsAsCommonsCsv(content, ',');
+  }
+
+  @Test
+  public void read_shouldKeepQuotedLineBreaksAndEscapedQuotes() throws IOException {
+    String csv = "Item;Category\r\n"
+        + "\"Pokemon \"\"SM1\"\"\r\nbooster\";TCG\r\n"
+        + "\"multi\n\nline; with separator\";\"T\"\"CG\"\r\n"
+        + "\r\n"
+        + "12\" vinyl \"\"x\";Music\r\n"
+        + "\"\";Empty\r\n"
+        + "\"ends in quote\"\"\";Last";
+    Assert.assertEquals(5, parseWhole(csv, ';').size());
+
+    assertSameLabelsAsCommonsCsv(csv, ';');
+  }
+
+  @Test
+  public void read_shouldReadLabelsByHeaderColumns() throws IOException {
+    Path file = write("Id,Category,Item\n1,TCG,Pkm SM1\n2,Toys,\"Funko, Pikachu\"\n");
+
+    List<Label> labels = new MappedCsvLabelReader(file, ',', "Item", "Category").readAll();
+
+    Assert.assertEquals(2, labels.size());
+    Assert.assertEquals("Funko, Pikachu", labels.get(1).getLabel());
+    Assert.assertEquals("Toys", labels.get(1).getCategory());
+  }
+}
@@ -0,0 +1,63 @@
+package com.tmilar.labelsimplification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultEncoderTest {
+
+  private static final List<String> COLUMNS = Arrays.asList("OriginalItem", "CatalogItem",
+      "Juego");
+  private static final List<List<String>> ROWS = Arrays.asList(
+      Arrays.asList("Pkm SM1", "Pokemon Sun & Moon", "Pokemon"),
+      Arrays.asList("Funko 5\" \"Pikachu\", box", "Funko;box", null),
+      Arrays.asList("multi\r\nline\ttab", "", "Ñandú \\ \u0001"));
+
+  private static String encode(ResultEncoder encoder) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.begin(COLUMNS, out);
+    // in batches, like the writers do.
+    encoder.encode(ROWS.subList(0, 1), out);
+    encoder.encode(ROWS.subList(1, ROWS.size()), out);
+    encoder.encode(Collections.emptyList(), out);
+    encoder.end(out);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void csv_shouldEncodeLikeOneCsvPrinterWithHeader() throws IOException {
+    for (char separator : new char[]{',', ';'}) {
+      StringWriter expected = new StringWriter();
+      try (CSVPrinter printer = new CSVPrinter(expected, CSVFormat.DEFAULT
+          .withHeader(COLUMNS.toArray(new String[0]))
+          .withDelimiter(separator))) {
+        for (List<String> row : ROWS) {
+          printer.printRecord(row);
+        }
+      }
+
+      Assert.assertEquals(expected.toString(), encode(new CsvResultEncoder(separator)));
+    }
+  }
+
+  @Test
+  public void ndjson_shouldEscapeStrings_oneObjectPerLine() throws IOException {
+    String expected = ""
+        + "{\"OriginalItem\":\"Pkm SM1\",\"CatalogItem\":\"Pokemon Sun & Moon\","
+        + "\"Juego\":\"Pokemon\"}\n"
+        + "{\"OriginalItem\":\"Funko 5\\\" \\\"Pikachu\\\", box\",\"CatalogItem\":\"Funko;box\","
+        + "\"Juego\":null}\n"
+        + "{\"OriginalItem\":\"multi\\r\\nline\\ttab\",\"CatalogItem\":\"\","
+        + "\"Juego\":\"Ñandú \\\\ \\u0001\"}\n";
+
+    Assert.assertEquals(expected, encode(new NdjsonResultEncoder()));
+  }
+}
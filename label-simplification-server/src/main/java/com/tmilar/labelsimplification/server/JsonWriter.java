@@ -0,0 +1,75 @@
+package com.tmilar.labelsimplification.server;
+
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import java.util.Map;
+
+/**
+ * Minimal JSON output for the server responses, no JSON library needed.
+ */
+class JsonWriter {
+
+  private JsonWriter() {
+  }
+
+  /**
+   * Append the result as {@code {"label":..,"category":..,"simplified":..,"extractions":{..}}}.
+   */
+  static void appendResult(StringBuilder json, SimplifiedLabel result, String category) {
+    json.append("{\"label\":");
+    appendString(json, result.getLabel());
+    json.append(",\"category\":");
+    appendString(json, category);
+    json.append(",\"simplified\":");
+    appendString(json, result.getSimplifiedLabel());
+    json.append(",\"extractions\":{");
+    boolean first = true;
+    for (Map.Entry<String, String> extraction : result.getExtractedValuesMap().entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      appendString(json, extraction.getKey());
+      json.append(':');
+      appendString(json, extraction.getValue());
+    }
+    json.append("}}");
+  }
+
+  /**
+   * Append the value as a JSON string, or null.
+   */
+  static void appendString(StringBuilder json, String value) {
+    if (value == null) {
+      json.append("null");
+      return;
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+}
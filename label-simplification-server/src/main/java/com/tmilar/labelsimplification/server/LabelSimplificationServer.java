@@ -0,0 +1,344 @@
+package com.tmilar.labelsimplification.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import com.tmilar.labelsimplification.service.ReloadResult;
+import com.tmilar.labelsimplification.service.RemainderMode;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Local HTTP label simplification server, on the JDK built-in server. The rules are loaded once,
+ * from a rules snapshot (see the CLI {@code --compile-rules}), and shared by every request.
+ *
+ * Endpoints:
+ * <ul>
+ * <li>{@code GET /simplify?label=..&category=..}: one label, as a JSON object. Concurrent requests
+ * are coalesced into micro-batches, see {@link MicroBatcher}.</li>
+ * <li>{@code POST /simplify/bulk}: one label per UTF-8 body line, as {@code category<TAB>label}.
+ * Results are streamed as newline-delimited JSON, in the body order.</li>
+ * <li>{@code GET /health}: status and batching counters.</li>
+ * </ul>
+ * When the micro-batch queue is full, or too many bulk requests are running, requests are
+ * answered 429 right away instead of queueing.
+ */
+public class LabelSimplificationServer implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(LabelSimplificationServer.class);
+
+  private static final int OK = 200;
+  private static final int BAD_REQUEST = 400;
+  private static final int NOT_FOUND = 404;
+  private static final int METHOD_NOT_ALLOWED = 405;
+  private static final int PAYLOAD_TOO_LARGE = 413;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int INTERNAL_ERROR = 500;
+
+  private final LabelSimplificationService service;
+  private final MicroBatcher batcher;
+  private int httpThreads = 8;
+  private int maxBulkRequests = 2;
+  private int maxBulkLabels = 100_000;
+
+  private HttpServer httpServer;
+  private ExecutorService httpExecutor;
+  private Semaphore bulkPermits;
+
+  public LabelSimplificationServer(LabelSimplificationService service, MicroBatcher batcher) {
+    this.service = service;
+    this.batcher = batcher;
+  }
+
+  public static void main(String[] args) throws IOException {
+    ServerOptions options = new ServerOptions(args);
+    // responses are written as headers then body: without this, Nagle delays small responses.
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    Path snapshotPath = Paths.get(options.get("rules-snapshot", "/data/rules.snapshot"));
+
+    LabelSimplificationService service = new LabelSimplificationService();
+    service.setCacheMaximumSize(options.getInt("cache-size", 0));
+    service.setEarlyExit(options.isEnabled("early-exit"));
+    service.setRemainderMode(RemainderMode.parse(options.get("remainder-mode", "match-offsets")));
+    // bulk requests are simplified on this pool, micro-batches on the batch workers.
+    service.setForkJoinPool(new ForkJoinPool(
+        options.getInt("bulk-parallelism", Runtime.getRuntime().availableProcessors())));
+    ReloadResult reloadResult = service.loadRules(snapshotPath, null);
+    logger.info("Loaded rules snapshot '{}': {}", snapshotPath, reloadResult);
+
+    MicroBatcher batcher = new MicroBatcher(service,
+        options.getInt("queue-capacity", 4096),
+        options.getInt("max-batch-size", 64),
+        options.getInt("max-batch-delay-micros", 500),
+        options.getInt("batch-threads", Runtime.getRuntime().availableProcessors()));
+
+    LabelSimplificationServer server = new LabelSimplificationServer(service, batcher);
+    server.setHttpThreads(options.getInt("http-threads", 8));
+    server.setMaxBulkRequests(options.getInt("max-bulk-requests", 2));
+    server.setMaxBulkLabels(options.getInt("max-bulk-labels", 100_000));
+    // local endpoint: only bound to the loopback interface by default.
+    server.start(new InetSocketAddress(options.get("host", "127.0.0.1"),
+        options.getInt("port", 8080)));
+
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+  }
+
+  public void start(InetSocketAddress address) throws IOException {
+    AtomicInteger threadIds = new AtomicInteger();
+    httpExecutor = Executors.newFixedThreadPool(httpThreads,
+        runnable -> new Thread(runnable, "http-" + threadIds.incrementAndGet()));
+    bulkPermits = new Semaphore(maxBulkRequests);
+
+    httpServer = HttpServer.create(address, 0);
+    httpServer.setExecutor(httpExecutor);
+    httpServer.createContext("/simplify", exchange -> handle(exchange, this::simplify));
+    httpServer.createContext("/simplify/bulk", exchange -> handle(exchange, this::simplifyBulk));
+    httpServer.createContext("/health", exchange -> handle(exchange, this::health));
+    httpServer.start();
+    logger.info("Label simplification server listening on {}", httpServer.getAddress());
+  }
+
+  /**
+   * @return the listening port, useful when started on port 0.
+   */
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  private interface Handler {
+
+    void handle(HttpExchange exchange) throws IOException;
+  }
+
+  private static void handle(HttpExchange exchange, Handler handler) {
+    try {
+      handler.handle(exchange);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Could not handle request '{}'", exchange.getRequestURI(), e);
+      respond(exchange, INTERNAL_ERROR, "Internal error");
+    }
+  }
+
+  private void simplify(HttpExchange exchange) throws IOException {
+    if (!"GET".equals(exchange.getRequestMethod())) {
+      respond(exchange, METHOD_NOT_ALLOWED, "Expected GET");
+      return;
+    }
+    if (!"/simplify".equals(exchange.getRequestURI().getPath())) {
+      respond(exchange, NOT_FOUND, "Not found");
+      return;
+    }
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    String labelString = query.get("label");
+    if (labelString == null) {
+      respond(exchange, BAD_REQUEST, "Missing 'label' parameter");
+      return;
+    }
+    String category = query.get("category");
+
+    CompletableFuture<SimplifiedLabel> result = batcher.submit(new Label(labelString, category));
+    if (result == null) {
+      respondTooManyRequests(exchange);
+      return;
+    }
+    // answered by an http thread once the batch is done, this one is free meanwhile.
+    result.whenCompleteAsync((simplifiedLabel, error) -> {
+      if (error != null) {
+        respond(exchange, INTERNAL_ERROR, "Could not simplify label");
+        return;
+      }
+      StringBuilder json = new StringBuilder(256);
+      JsonWriter.appendResult(json, simplifiedLabel, category);
+      json.append('\n');
+      respond(exchange, OK, "application/json", json.toString());
+    }, this::executeAnswer);
+  }
+
+  /**
+   * Run the answer on an http thread, or on the calling one once the http threads are shut down:
+   * every exchange is answered, even while closing.
+   */
+  private void executeAnswer(Runnable answer) {
+    try {
+      httpExecutor.execute(answer);
+    } catch (RejectedExecutionException e) {
+      answer.run();
+    }
+  }
+
+  private void simplifyBulk(HttpExchange exchange) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      respond(exchange, METHOD_NOT_ALLOWED, "Expected POST");
+      return;
+    }
+    if (!bulkPermits.tryAcquire()) {
+      respondTooManyRequests(exchange);
+      return;
+    }
+    try {
+      List<Label> labels = new ArrayList<>();
+      try (BufferedReader body = new BufferedReader(
+          new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+        for (String line = body.readLine(); line != null; line = body.readLine()) {
+          if (labels.size() == maxBulkLabels) {
+            respond(exchange, PAYLOAD_TOO_LARGE,
+                String.format("Too many labels, at most %d per request", maxBulkLabels));
+            return;
+          }
+          int separator = line.indexOf('\t');
+          labels.add(separator < 0 ? new Label(line)
+              : new Label(line.substring(separator + 1), line.substring(0, separator)));
+        }
+      }
+
+      List<SimplifiedLabel> results = service.simplifyAll(labels);
+
+      exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+      exchange.sendResponseHeaders(OK, 0);
+      try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(),
+          StandardCharsets.UTF_8)) {
+        StringBuilder json = new StringBuilder(256);
+        for (int i = 0; i < results.size(); i++) {
+          json.setLength(0);
+          JsonWriter.appendResult(json, results.get(i), labels.get(i).getCategory());
+          json.append('\n');
+          writer.append(json);
+        }
+      }
+    } finally {
+      bulkPermits.release();
+    }
+  }
+
+  private void health(HttpExchange exchange) {
+    long batches = batcher.getBatchesCount();
+    long labels = batcher.getLabelsCount();
+    String json = String.format(
+        "{\"status\":\"ok\",\"batches\":%d,\"batchedLabels\":%d,\"averageBatchSize\":%.2f,"
+            + "\"rejected\":%d,\"queued\":%d}\n",
+        batches, labels, batches == 0 ? 0 : (double) labels / batches,
+        batcher.getRejectedCount(), batcher.getQueueSize());
+    respond(exchange, OK, "application/json", json);
+  }
+
+  private static void respondTooManyRequests(HttpExchange exchange) {
+    exchange.getResponseHeaders().set("Retry-After", "1");
+    respond(exchange, TOO_MANY_REQUESTS, "Too many requests, retry later");
+  }
+
+  private static void respond(HttpExchange exchange, int status, String message) {
+    respond(exchange, status, "text/plain; charset=utf-8", message + "\n");
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType,
+      String body) {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    try (OutputStream out = exchange.getResponseBody()) {
+      exchange.sendResponseHeaders(status, bytes.length);
+      out.write(bytes);
+    } catch (IOException e) {
+      logger.debug("Could not send response to '{}'", exchange.getRemoteAddress(), e);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery)
+      throws UnsupportedEncodingException {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      int separator = parameter.indexOf('=');
+      String name = separator < 0 ? parameter : parameter.substring(0, separator);
+      String value = separator < 0 ? "" : parameter.substring(separator + 1);
+      query.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+    }
+    return query;
+  }
+
+  /**
+   * Stop accepting requests, let the in-flight ones finish (up to a few seconds), and stop the
+   * micro-batcher.
+   */
+  @Override
+  public void close() {
+    if (httpServer == null) {
+      return;
+    }
+    httpServer.stop(1);
+    batcher.close();
+    httpExecutor.shutdown();
+    try {
+      httpExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    httpServer = null;
+    logger.info("Label simplification server stopped");
+  }
+
+  public int getHttpThreads() {
+    return httpThreads;
+  }
+
+  /**
+   * @param httpThreads - threads reading requests and writing responses.
+   */
+  public void setHttpThreads(int httpThreads) {
+    this.httpThreads = httpThreads;
+  }
+
+  public int getMaxBulkRequests() {
+    return maxBulkRequests;
+  }
+
+  /**
+   * @param maxBulkRequests - bulk requests run at once; more are answered 429.
+   */
+  public void setMaxBulkRequests(int maxBulkRequests) {
+    this.maxBulkRequests = maxBulkRequests;
+  }
+
+  public int getMaxBulkLabels() {
+    return maxBulkLabels;
+  }
+
+  /**
+   * @param maxBulkLabels - labels per bulk request; more are answered 413.
+   */
+  public void setMaxBulkLabels(int maxBulkLabels) {
+    this.maxBulkLabels = maxBulkLabels;
+  }
+}
@@ -0,0 +1,191 @@
+package com.tmilar.labelsimplification.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Load test of a running server: concurrent clients sending random labels for a fixed duration,
+ * then a throughput and latency report.
+ *
+ * Labels are read from a file with one {@code category<TAB>label} per line (the bulk body format).
+ * With {@code --bulk-size=N} each request is a bulk one of N labels, otherwise single labels.
+ */
+public class LoadTestClient {
+
+  private static final Logger logger = LogManager.getLogger(LoadTestClient.class);
+
+  private final String baseUrl;
+  private final List<String> labelLines;
+  private final int bulkSize;
+
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder errorsCount = new LongAdder();
+
+  public LoadTestClient(String baseUrl, List<String> labelLines, int bulkSize) {
+    this.baseUrl = baseUrl;
+    this.labelLines = labelLines;
+    this.bulkSize = bulkSize;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    ServerOptions options = new ServerOptions(args);
+    String labelsPath = options.get("labels", "/data/labels.tsv");
+    List<String> labelLines = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get(labelsPath), StandardCharsets.UTF_8)) {
+      if (!line.isEmpty()) {
+        labelLines.add(line);
+      }
+    }
+
+    LoadTestClient client = new LoadTestClient(
+        options.get("url", "http://127.0.0.1:8080"), labelLines, options.getInt("bulk-size", 0));
+    client.run(options.getInt("threads", 16), options.getInt("duration-seconds", 10),
+        options.getInt("warmup-seconds", 3));
+  }
+
+  /**
+   * Run the clients, and log the report of the measured period (after the warm-up one).
+   */
+  public void run(int threads, int durationSeconds, int warmupSeconds)
+      throws InterruptedException {
+    if (warmupSeconds > 0) {
+      logger.info("Warming up for {}s...", warmupSeconds);
+      runClients(threads, TimeUnit.SECONDS.toNanos(warmupSeconds));
+      rejectedCount.reset();
+      errorsCount.reset();
+    }
+
+    logger.info("Running {} clients for {}s against '{}'...", threads, durationSeconds, baseUrl);
+    long start = System.nanoTime();
+    long[][] clientLatencies = runClients(threads, TimeUnit.SECONDS.toNanos(durationSeconds));
+    double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+    long[] latencies = Arrays.stream(clientLatencies).flatMapToLong(Arrays::stream).sorted()
+        .toArray();
+    long labels = latencies.length * (long) Math.max(1, bulkSize);
+    logger.info("{} requests ({} labels) in {}s: {} requests/s, {} labels/s",
+        latencies.length, labels, String.format("%.1f", elapsedSeconds),
+        String.format("%.0f", latencies.length / elapsedSeconds),
+        String.format("%.0f", labels / elapsedSeconds));
+    if (latencies.length > 0) {
+      logger.info("Latency (ms): p50 {}, p90 {}, p99 {}, max {}",
+          millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.90)),
+          millis(percentile(latencies, 0.99)), millis(latencies[latencies.length - 1]));
+    }
+    logger.info("Rejected (429): {}, errors: {}", rejectedCount.sum(), errorsCount.sum());
+  }
+
+  /**
+   * @return by client: latencies (nanos) of the successful requests.
+   */
+  private long[][] runClients(int threads, long durationNanos) throws InterruptedException {
+    long deadline = System.nanoTime() + durationNanos;
+    long[][] clientLatencies = new long[threads][];
+    Thread[] clients = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      int client = i;
+      clients[i] = new Thread(() -> clientLatencies[client] = runClient(deadline),
+          "load-test-client-" + i);
+      clients[i].start();
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    return clientLatencies;
+  }
+
+  private long[] runClient(long deadline) {
+    long[] latencies = new long[1024];
+    int count = 0;
+    byte[] buffer = new byte[8192];
+    while (System.nanoTime() < deadline) {
+      long start = System.nanoTime();
+      try {
+        HttpURLConnection connection = bulkSize > 0 ? bulkRequest() : singleRequest();
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream()
+            : connection.getErrorStream();
+        // read it all, so the connection is kept alive for the next request.
+        if (body != null) {
+          try (InputStream in = body) {
+            while (in.read(buffer) >= 0) {
+              // discard
+            }
+          }
+        }
+        if (status == 429) {
+          rejectedCount.increment();
+          continue;
+        }
+        if (status != 200) {
+          errorsCount.increment();
+          continue;
+        }
+      } catch (IOException e) {
+        errorsCount.increment();
+        continue;
+      }
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = System.nanoTime() - start;
+    }
+    return Arrays.copyOf(latencies, count);
+  }
+
+  private HttpURLConnection singleRequest() throws IOException {
+    String line = randomLabelLine();
+    int separator = line.indexOf('\t');
+    String label = separator < 0 ? line : line.substring(separator + 1);
+    String url = baseUrl + "/simplify?label=" + URLEncoder.encode(label, "UTF-8");
+    if (separator >= 0) {
+      url += "&category=" + URLEncoder.encode(line.substring(0, separator), "UTF-8");
+    }
+    return (HttpURLConnection) new URL(url).openConnection();
+  }
+
+  private HttpURLConnection bulkRequest() throws IOException {
+    StringBuilder body = new StringBuilder(bulkSize * 64);
+    for (int i = 0; i < bulkSize; i++) {
+      body.append(randomLabelLine()).append('\n');
+    }
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/simplify/bulk")
+        .openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setFixedLengthStreamingMode(bytes.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(bytes);
+    }
+    return connection;
+  }
+
+  private String randomLabelLine() {
+    return labelLines.get(ThreadLocalRandom.current().nextInt(labelLines.size()));
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * percentile))];
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.2f", nanos / 1e6);
+  }
+}
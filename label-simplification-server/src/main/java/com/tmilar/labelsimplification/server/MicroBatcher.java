@@ -0,0 +1,187 @@
+package com.tmilar.labelsimplification.server;
+
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Coalesces concurrent single label requests into micro-batches.
+ *
+ * Requests wait in a bounded queue. The batcher thread takes the first one, then whatever else
+ * arrives within the batch delay (up to the max batch size), and hands the batch to a worker. When
+ * every worker is busy the batcher runs the batch itself, so it stops draining the queue: once the
+ * queue is full, {@link #submit(Label)} rejects the requests instead of queueing them unbounded.
+ */
+public class MicroBatcher implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(MicroBatcher.class);
+
+  private final LabelSimplificationService service;
+  private final int maxBatchSize;
+  private final long maxBatchDelayNanos;
+  private final BlockingQueue<Request> queue;
+  private final ThreadPoolExecutor workers;
+  private final Thread batcherThread;
+  private volatile boolean closed;
+
+  private final LongAdder batchesCount = new LongAdder();
+  private final LongAdder labelsCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+
+  private static final class Request {
+
+    private final Label label;
+    private final CompletableFuture<SimplifiedLabel> result = new CompletableFuture<>();
+
+    private Request(Label label) {
+      this.label = label;
+    }
+  }
+
+  /**
+   * @param queueCapacity       - requests waiting to be batched, before rejecting new ones.
+   * @param maxBatchSize        - labels per batch.
+   * @param maxBatchDelayMicros - how long the first request of a batch waits for others.
+   * @param workerThreads       - batches simplified at once.
+   */
+  public MicroBatcher(LabelSimplificationService service, int queueCapacity, int maxBatchSize,
+      long maxBatchDelayMicros, int workerThreads) {
+    this.service = service;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    AtomicInteger workerIds = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        runnable -> new Thread(runnable, "batch-worker-" + workerIds.incrementAndGet()),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+
+    this.batcherThread = new Thread(this::batch, "micro-batcher");
+    this.batcherThread.setDaemon(true);
+    this.batcherThread.start();
+  }
+
+  /**
+   * @return the label simplification result, or null if the queue is full (or the batcher is
+   *     closed) and the request was rejected.
+   */
+  public CompletableFuture<SimplifiedLabel> submit(Label label) {
+    Request request = new Request(label);
+    if (closed || !queue.offer(request)) {
+      rejectedCount.increment();
+      return null;
+    }
+    // closed meanwhile: close() may have drained the queue already, so take the request back. If
+    // it's gone, the batcher or close() took it, and they complete it.
+    if (closed && queue.remove(request)) {
+      rejectedCount.increment();
+      return null;
+    }
+    return request.result;
+  }
+
+  private void batch() {
+    List<Request> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (!closed) {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < maxBatchSize) {
+          // take what's already queued, then wait for more until the deadline.
+          if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+            continue;
+          }
+          long remaining = deadline - System.nanoTime();
+          Request request = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+          if (request == null) {
+            break;
+          }
+          batch.add(request);
+        }
+
+        List<Request> ready = batch;
+        batch = new ArrayList<>(maxBatchSize);
+        workers.execute(() -> simplify(ready));
+      }
+    } catch (InterruptedException e) {
+      // closed: fail the batch being gathered.
+      IllegalStateException closedException = new IllegalStateException("Server closed");
+      batch.forEach(request -> request.result.completeExceptionally(closedException));
+    }
+  }
+
+  private void simplify(List<Request> batch) {
+    // counted before completing: callers see the counters of their own batch.
+    batchesCount.increment();
+    labelsCount.add(batch.size());
+    try {
+      List<Label> labels = batch.stream().map(request -> request.label)
+          .collect(Collectors.toList());
+      // sequential: a micro-batch is too small to split, the parallelism is across batches.
+      List<SimplifiedLabel> results = service.simplifyAll(labels.stream())
+          .collect(Collectors.toList());
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result.complete(results.get(i));
+      }
+    } catch (RuntimeException e) {
+      logger.error("Could not simplify a batch of {} labels", batch.size(), e);
+      batch.forEach(request -> request.result.completeExceptionally(e));
+    }
+  }
+
+  public long getBatchesCount() {
+    return batchesCount.sum();
+  }
+
+  public long getLabelsCount() {
+    return labelsCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * Stop batching. Requests still queued are failed, batches already running complete (waiting up
+   * to a few seconds for them), and new requests are rejected.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    batcherThread.interrupt();
+    try {
+      batcherThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    workers.shutdown();
+    IllegalStateException closedException = new IllegalStateException("Server closed");
+    for (Request request = queue.poll(); request != null; request = queue.poll()) {
+      request.result.completeExceptionally(closedException);
+    }
+    try {
+      workers.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.tmilar.labelsimplification.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code --name=value} (or just {@code --name} for flags).
+ * Options not given keep the defaults.
+ */
+public class ServerOptions {
+
+  private final Map<String, String> options = new HashMap<>();
+
+  public ServerOptions(String[] args) {
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException(
+            String.format("Invalid option '%s', expected '--name=value' or '--flag'", arg));
+      }
+      String option = arg.substring(2);
+      int separator = option.indexOf('=');
+      if (separator < 0) {
+        options.put(option, "true");
+      } else {
+        options.put(option.substring(0, separator), option.substring(separator + 1));
+      }
+    }
+  }
+
+  public String get(String name, String defaultValue) {
+    return options.getOrDefault(name, defaultValue);
+  }
+
+  public boolean has(String name) {
+    return options.containsKey(name);
+  }
+
+  public boolean isEnabled(String name) {
+    return Boolean.parseBoolean(options.getOrDefault(name, "false"));
+  }
+
+  public int getInt(String name, int defaultValue) {
+    String value = options.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+}
@@ -0,0 +1,129 @@
+package com.tmilar.labelsimplification.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LabelSimplificationServerTest {
+
+  private LabelSimplificationServer server;
+
+  @Before
+  public void setUp() {
+    server = new LabelSimplificationServer(MicroBatcherTest.sampleService(),
+        new MicroBatcher(MicroBatcherTest.sampleService(), 16, 8, 100, 1));
+    server.setHttpThreads(2);
+    server.setMaxBulkLabels(2);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  private HttpURLConnection open(String path) throws IOException {
+    URL url = new URL("http://localhost:" + server.getPort() + path);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(5000);
+    connection.setReadTimeout(5000);
+    return connection;
+  }
+
+  private HttpURLConnection postBulk(String body) throws IOException {
+    HttpURLConnection connection = open("/simplify/bulk");
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return connection;
+  }
+
+  private static String readBody(HttpURLConnection connection) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream()
+        : connection.getErrorStream()) {
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        body.write(buffer, 0, read);
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void simplify_shouldAnswerTheBatchedResult_asJson() throws IOException {
+    server.start(new InetSocketAddress("localhost", 0));
+
+    HttpURLConnection connection = open("/simplify?label="
+        + URLEncoder.encode("Pkm SM1 \"promo\"", "UTF-8") + "&category=TCG");
+
+    Assert.assertEquals(200, connection.getResponseCode());
+    Assert.assertEquals("application/json", connection.getContentType());
+    String body = readBody(connection);
+    Assert.assertTrue(body, body.startsWith("{\"label\":\"Pkm SM1 \\\"promo\\\"\","
+        + "\"category\":\"TCG\",\"simplified\":\"Pokemon Sun & Moon \\\"promo\\\"\""));
+  }
+
+  @Test
+  public void simplifyBulk_shouldAnswerOneLinePerLabel() throws IOException {
+    server.start(new InetSocketAddress("localhost", 0));
+
+    HttpURLConnection connection = postBulk("TCG\tPkm SM1\nTCG\tPokemon\n");
+
+    Assert.assertEquals(200, connection.getResponseCode());
+    String[] lines = readBody(connection).split("\n");
+    Assert.assertEquals(2, lines.length);
+    Assert.assertTrue(lines[0], lines[0].contains("\"simplified\":\"Pokemon Sun & Moon\""));
+    Assert.assertTrue(lines[1], lines[1].contains("\"simplified\":\"Pokemon\""));
+  }
+
+  @Test
+  public void simplifyBulk_shouldAnswer413_overTheMaxBulkLabels() throws IOException {
+    server.start(new InetSocketAddress("localhost", 0));
+
+    HttpURLConnection connection = postBulk("TCG\ta\nTCG\tb\nTCG\tc\n");
+
+    Assert.assertEquals(413, connection.getResponseCode());
+  }
+
+  @Test
+  public void simplifyBulk_shouldAnswer429_overTheMaxBulkRequests() throws IOException {
+    server.setMaxBulkRequests(0);
+    server.start(new InetSocketAddress("localhost", 0));
+
+    HttpURLConnection connection = postBulk("TCG\tPkm SM1\n");
+
+    Assert.assertEquals(429, connection.getResponseCode());
+    Assert.assertEquals("1", connection.getHeaderField("Retry-After"));
+  }
+
+  @Test
+  public void close_shouldStopAcceptingRequests() throws IOException {
+    server.start(new InetSocketAddress("localhost", 0));
+    int port = server.getPort();
+    Assert.assertEquals(200, open("/health").getResponseCode());
+
+    server.close();
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + port + "/health").openConnection();
+    connection.setConnectTimeout(5000);
+    try {
+      connection.getResponseCode();
+      Assert.fail("a closed server should refuse connections");
+    } catch (IOException expected) {
+      // refused.
+    }
+  }
+}
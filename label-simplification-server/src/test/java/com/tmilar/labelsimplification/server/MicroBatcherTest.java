@@ -0,0 +1,138 @@
+package com.tmilar.labelsimplification.server;
+
+import com.tmilar.labelsimplification.model.Extractor;
+import com.tmilar.labelsimplification.model.Label;
+import com.tmilar.labelsimplification.model.SimplifiedLabel;
+import com.tmilar.labelsimplification.service.LabelSimplificationService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MicroBatcherTest {
+
+  static LabelSimplificationService sampleService() {
+    LabelSimplificationService service = new LabelSimplificationService();
+    service.load(Arrays.asList(
+        new Extractor("Juego", "Pokemon", "Pkm|Pokemon", null, 0, "TCG"),
+        new Extractor("Coleccion", "Sun & Moon", "SM1", "Juego.Pokemon[0]", 0, "TCG")),
+        Collections.emptyMap());
+    return service;
+  }
+
+  /**
+   * Service whose batches wait until released, to fill the batcher queue.
+   */
+  static class BlockingService extends LabelSimplificationService {
+
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public Stream<SimplifiedLabel> simplifyAll(Stream<? extends Label> labels) {
+      // not interruptible: a closing batcher still completes its running batch.
+      boolean interrupted = false;
+      while (release.getCount() > 0) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return super.simplifyAll(labels);
+    }
+  }
+
+  static void awaitQueueSize(MicroBatcher batcher, int size) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (batcher.getQueueSize() != size) {
+      Assert.assertTrue("queue size " + batcher.getQueueSize(), System.nanoTime() < deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  public void submit_shouldCoalesceConcurrentRequests_intoOneBatch() throws Exception {
+    // the first request waits up to 1 second for the others.
+    try (MicroBatcher batcher = new MicroBatcher(sampleService(), 16, 8, 1_000_000, 2)) {
+      List<CompletableFuture<SimplifiedLabel>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(batcher.submit(new Label("Pkm SM1 #" + i, "TCG")));
+      }
+
+      for (int i = 0; i < 8; i++) {
+        Assert.assertEquals("Pokemon Sun & Moon #" + i,
+            results.get(i).get(5, TimeUnit.SECONDS).getSimplifiedLabel());
+      }
+      Assert.assertEquals(1, batcher.getBatchesCount());
+      Assert.assertEquals(8, batcher.getLabelsCount());
+    }
+  }
+
+  @Test
+  public void submit_shouldRejectRequests_whenTheQueueIsFull() throws Exception {
+    BlockingService service = new BlockingService();
+    service.load(Collections.emptyList(), Collections.emptyMap());
+    try (MicroBatcher batcher = new MicroBatcher(service, 2, 1, 0, 1)) {
+      // one batch blocks the worker, the next one the batcher: then the queue fills up.
+      CompletableFuture<SimplifiedLabel> first = batcher.submit(new Label("a", "TCG"));
+      awaitQueueSize(batcher, 0);
+      Thread.sleep(50);
+      CompletableFuture<SimplifiedLabel> second = batcher.submit(new Label("b", "TCG"));
+      awaitQueueSize(batcher, 0);
+      Assert.assertNotNull(batcher.submit(new Label("c", "TCG")));
+      Assert.assertNotNull(batcher.submit(new Label("d", "TCG")));
+
+      Assert.assertNull(batcher.submit(new Label("e", "TCG")));
+      Assert.assertEquals(1, batcher.getRejectedCount());
+
+      service.release.countDown();
+      Assert.assertEquals("a", first.get(5, TimeUnit.SECONDS).getLabel());
+      Assert.assertEquals("b", second.get(5, TimeUnit.SECONDS).getLabel());
+    }
+  }
+
+  @Test
+  public void close_shouldFailQueuedRequests_andRejectNewOnes() throws Exception {
+    BlockingService service = new BlockingService();
+    service.load(Collections.emptyList(), Collections.emptyMap());
+    MicroBatcher batcher = new MicroBatcher(service, 4, 1, 0, 1);
+    CompletableFuture<SimplifiedLabel> running = batcher.submit(new Label("a", "TCG"));
+    awaitQueueSize(batcher, 0);
+    Thread.sleep(50);
+    CompletableFuture<SimplifiedLabel> batching = batcher.submit(new Label("b", "TCG"));
+    awaitQueueSize(batcher, 0);
+    CompletableFuture<SimplifiedLabel> queued = batcher.submit(new Label("c", "TCG"));
+
+    // the running batches complete once released, while closing.
+    new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      service.release.countDown();
+    }).start();
+    batcher.close();
+
+    // done by the time close() returns.
+    Assert.assertEquals("a", running.getNow(null).getLabel());
+    Assert.assertEquals("b", batching.getNow(null).getLabel());
+    try {
+      queued.get(5, TimeUnit.SECONDS);
+      Assert.fail("queued request should fail on close");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertNull(batcher.submit(new Label("d", "TCG")));
+  }
+}